@@ -0,0 +1,23 @@
+package dm.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Fresh output directory for every invocation, class files are created only in empty directories
+@State(Scope.Thread)
+public class OutputState {
+    Path directory;
+
+    @Setup(Level.Invocation)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("xml-to-class-out");
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws IOException {
+        WorkbookState.deleteDirectory(directory);
+    }
+}
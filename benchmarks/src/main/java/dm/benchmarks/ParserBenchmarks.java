@@ -0,0 +1,120 @@
+package dm.benchmarks;
+
+import dm.ClassGenerator;
+import dm.FieldInfo;
+import dm.GeneratorSettings;
+import dm.WorkbookIndex;
+import dm.XmlToClassesParser;
+import dm.creators.ClassCreator;
+import dm.creators.ClassCreatorWithPublicFields;
+import dm.creators.MultiplicityType;
+import dm.sources.SheetSource;
+import dm.sources.WorkbookSource;
+import dm.sources.WorkbookSources;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static dm.benchmarks.WorkbookGenerator.MULTIPLICITY_HEADER;
+import static dm.benchmarks.WorkbookGenerator.ROOT_SHEET;
+import static dm.benchmarks.WorkbookGenerator.TYPE_HEADER;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmarks {
+    private static final int FIELD_NAME_SCOPE_SIZE = 9;
+    private static final String VALID_VARIABLE_NAME_PATTERN = "^[a-zA-ZсС][a-zA-Z0-9_&сС]*";
+
+    @Benchmark
+    public int openWorkbook(WorkbookState state, RowCounter counter) throws Exception {
+        try (WorkbookSource workbook = WorkbookSources.open(state.workbookPath.toString(), state.streaming)) {
+            counter.rows += state.totalRows;
+            return workbook.getNumberOfSheets();
+        }
+    }
+
+    // A new index per invocation, as every parser run starts with empty header caches
+    @Benchmark
+    public void findColumnNumberByName(WorkbookState state, RowCounter counter, Blackhole blackhole) {
+        WorkbookIndex index = new WorkbookIndex(state.workbook, TYPE_HEADER, MULTIPLICITY_HEADER);
+        for (int i = 0; i < state.workbook.getNumberOfSheets(); i++) {
+            SheetSource sheet = state.workbook.getSheetAt(i);
+            blackhole.consume(index.getHeaderColumn(sheet, TYPE_HEADER));
+            blackhole.consume(index.getHeaderColumn(sheet, MULTIPLICITY_HEADER));
+        }
+        counter.rows += state.totalRows;
+    }
+
+    // Parses every sheet reachable from the root sheet of an opened workbook, without writing classes
+    @Benchmark
+    public void parseSheet(WorkbookState state, RowCounter counter, Blackhole blackhole) {
+        ClassCreator classCreator = (classType, fields) -> blackhole.consume(fields);
+        XmlToClassesParser parser = new XmlToClassesParser(
+                state.workbook,
+                classCreator,
+                FIELD_NAME_SCOPE_SIZE,
+                TYPE_HEADER,
+                MULTIPLICITY_HEADER,
+                VALID_VARIABLE_NAME_PATTERN,
+                1);
+        parser.parse(ROOT_SHEET);
+        counter.rows += state.totalRows;
+    }
+
+    @Benchmark
+    public long create(CreatorState state) {
+        state.classCreator.create("Benchmark" + (state.next++ & 1023), state.fields);
+        return state.renderedChars;
+    }
+
+    @Benchmark
+    public void endToEnd(WorkbookState state, OutputState output, RowCounter counter) {
+        GeneratorSettings settings = new GeneratorSettings();
+        settings.setStreamingInput(state.streaming);
+        new ClassGenerator(settings).generate(state.workbookPath.toString(), ROOT_SHEET, output.directory.toString());
+        counter.rows += state.totalRows;
+    }
+
+    @State(Scope.Thread)
+    public static class CreatorState {
+        @Param({"20"})
+        public int fieldCount;
+
+        List<FieldInfo> fields;
+        ClassCreator classCreator;
+        int next;
+        long renderedChars;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            String[] types = {"Cтрока", "LocalDate", "LocalDateTime", "boolean", "Document", ""};
+            fields = new ArrayList<>();
+            for (int i = 0; i < fieldCount; i++) {
+                MultiplicityType multiplicity = i % 3 == 0 ? MultiplicityType.MANY : MultiplicityType.ONE;
+                fields.add(new FieldInfo(i % 5 == 0 ? "import" : "field" + i, types[i % types.length], multiplicity));
+            }
+            Map<String, String> nameReplacementDict = new HashMap<>();
+            nameReplacementDict.put("import", "import_");
+            Map<String, String> typeReplacementDict = new HashMap<>();
+            typeReplacementDict.put("", "Object");
+            typeReplacementDict.put("Cтрока", "String");
+            Map<String, String> importsDict = new HashMap<>();
+            importsDict.put("LocalDateTime", "java.time.LocalDateTime");
+            importsDict.put("LocalDate", "java.time.LocalDate");
+            classCreator = new ClassCreatorWithPublicFields(
+                    System.getProperty("java.io.tmpdir"),
+                    nameReplacementDict,
+                    typeReplacementDict,
+                    importsDict,
+                    (filePath, content) -> renderedChars += content.length());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package dm.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Counts workbook rows handled by a benchmark, so JMH reports rows per second next to operations.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class RowCounter {
+    public long rows;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        rows = 0;
+    }
+}
@@ -0,0 +1,124 @@
+package dm.benchmarks;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Writes synthetic specification workbooks in the layout the parser expects: sheet "Root"
+ * and sheets "Decl1".."DeclN", each starting with its class row, followed by fields nested
+ * up to the given depth. Every sheet refers to the next one, so all sheets are reachable
+ * from "Root"; other rows refer to later sheets through hyperlinks with the given density.
+ */
+public class WorkbookGenerator {
+    public static final String ROOT_SHEET = "Root";
+    public static final String TYPE_HEADER = "Тип";
+    public static final String MULTIPLICITY_HEADER = "Обязательность и кратность";
+    public static final int MAX_NESTING_DEPTH = 9;
+    private static final int TYPE_COLUMN = 10;
+    private static final int MULTIPLICITY_COLUMN = 11;
+    private static final String[] SIMPLE_TYPES = {"строка", "Cтрока", "дата", "дата-время", "булевское", "число"};
+
+    private final int sheets;
+    private final int rowsPerSheet;
+    private final int nestingDepth;
+    private final double hyperlinkDensity;
+    private final long seed;
+
+    public WorkbookGenerator(int sheets, int rowsPerSheet, int nestingDepth, double hyperlinkDensity, long seed) {
+        if (sheets < 1 || rowsPerSheet < 1) {
+            throw new IllegalArgumentException("Workbook must have at least one sheet and one row");
+        }
+        if (nestingDepth < 1 || nestingDepth > MAX_NESTING_DEPTH) {
+            throw new IllegalArgumentException("Nesting depth must be between 1 and " + MAX_NESTING_DEPTH);
+        }
+        this.sheets = sheets;
+        this.rowsPerSheet = rowsPerSheet;
+        this.nestingDepth = nestingDepth;
+        this.hyperlinkDensity = hyperlinkDensity;
+        this.seed = seed;
+    }
+
+    public int getTotalRows() {
+        return sheets * rowsPerSheet;
+    }
+
+    public void write(Path path) {
+        Workbook workbook = path.toString().endsWith(".xls") ? new HSSFWorkbook() : new XSSFWorkbook();
+        fill(workbook);
+        try (OutputStream out = Files.newOutputStream(path)) {
+            workbook.write(out);
+        }
+        catch (Exception exception) {
+            throw new RuntimeException("Workbook '" + path + "' was not written: " + exception.getMessage());
+        }
+    }
+
+    private void fill(Workbook workbook) {
+        Random random = new Random(seed);
+        CreationHelper helper = workbook.getCreationHelper();
+        for (int s = 0; s < sheets; s++) {
+            workbook.createSheet(sheetName(s));
+        }
+        for (int s = 0; s < sheets; s++) {
+            Sheet sheet = workbook.getSheetAt(s);
+            Row header = sheet.createRow(0);
+            header.createCell(TYPE_COLUMN).setCellValue(TYPE_HEADER);
+            header.createCell(MULTIPLICITY_COLUMN).setCellValue(MULTIPLICITY_HEADER);
+            Row classRow = sheet.createRow(1);
+            classRow.createCell(0).setCellValue(sheetName(s));
+            classRow.createCell(TYPE_COLUMN).setCellValue(sheetName(s));
+
+            int[] levels = new int[rowsPerSheet + 1];
+            for (int i = 0; i < rowsPerSheet; i++) {
+                int previous = i == 0 ? 1 : levels[i - 1];
+                levels[i] = Math.max(1, Math.min(nestingDepth, previous + random.nextInt(3) - 1));
+            }
+            levels[rowsPerSheet] = 1;
+            for (int i = 0; i < rowsPerSheet; i++) {
+                Row row = sheet.createRow(i + 2);
+                row.createCell(levels[i]).setCellValue("field" + i + "L" + levels[i]);
+                Cell typeCell = row.createCell(TYPE_COLUMN);
+                if (i == 0 && s + 1 < sheets) {
+                    typeCell.setCellValue(sheetName(s + 1));
+                }
+                else if (levels[i + 1] > levels[i]) {
+                    typeCell.setCellValue("Nested" + s + "x" + i);
+                }
+                else if (s + 1 < sheets && random.nextDouble() < hyperlinkDensity) {
+                    int target = s + 1 + random.nextInt(Math.min(5, sheets - s - 1));
+                    typeCell.setCellValue(sheetName(target));
+                    Hyperlink hyperlink = helper.createHyperlink(Hyperlink.LINK_DOCUMENT);
+                    hyperlink.setAddress("'" + sheetName(target) + "'!A1");
+                    typeCell.setHyperlink(hyperlink);
+                }
+                else {
+                    typeCell.setCellValue(SIMPLE_TYPES[random.nextInt(SIMPLE_TYPES.length)]);
+                }
+                row.createCell(MULTIPLICITY_COLUMN).setCellValue(random.nextBoolean() ? "1" : "0..*");
+            }
+        }
+    }
+
+    private static String sheetName(int index) {
+        return index == 0 ? ROOT_SHEET : "Decl" + index;
+    }
+
+    // Usage: <output.xlsx|output.xls> [sheets] [rows per sheet] [nesting depth] [hyperlink density]
+    public static void main(String[] args) {
+        WorkbookGenerator generator = new WorkbookGenerator(
+                args.length > 1 ? Integer.parseInt(args[1]) : 20,
+                args.length > 2 ? Integer.parseInt(args[2]) : 200,
+                args.length > 3 ? Integer.parseInt(args[3]) : 4,
+                args.length > 4 ? Double.parseDouble(args[4]) : 0.1,
+                42);
+        generator.write(Paths.get(args[0]));
+        System.out.println("Workbook '" + args[0] + "' written: " + generator.getTotalRows() + " rows");
+    }
+}
@@ -0,0 +1,81 @@
+package dm.benchmarks;
+
+import dm.sources.WorkbookSource;
+import dm.sources.WorkbookSources;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+public class WorkbookState {
+    @Param({"xlsx", "xls"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean streaming;
+
+    @Param({"20"})
+    public int sheets;
+
+    @Param({"200"})
+    public int rowsPerSheet;
+
+    @Param({"4"})
+    public int nestingDepth;
+
+    @Param({"0.1"})
+    public double hyperlinkDensity;
+
+    Path directory;
+    Path workbookPath;
+    int totalRows;
+    WorkbookSource workbook;
+    private PrintStream standardOut;
+    private PrintStream standardErr;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("xml-to-class-bench");
+        workbookPath = directory.resolve("spec." + format);
+        WorkbookGenerator generator = new WorkbookGenerator(sheets, rowsPerSheet, nestingDepth, hyperlinkDensity, 42);
+        generator.write(workbookPath);
+        totalRows = generator.getTotalRows();
+        workbook = WorkbookSources.open(workbookPath.toString(), streaming);
+        // The parser reports every class and warning on the console, which would dominate the measurement
+        standardOut = System.out;
+        standardErr = System.err;
+        PrintStream discard = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+        System.setOut(discard);
+        System.setErr(discard);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        System.setOut(standardOut);
+        System.setErr(standardErr);
+        workbook.close();
+        deleteDirectory(directory);
+    }
+
+    static void deleteDirectory(Path path) throws IOException {
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package dm.maven;
+
+import dm.Application;
+import dm.ClassGenerator;
+import dm.GeneratorSettings;
+import dm.RunMetrics;
+import dm.creators.PrimitiveCollections;
+import dm.sources.CsvWorkbookSource;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Generates classes from a workbook in the build, with the options of the command line.
+ * The run is skipped when the workbook, the dictionaries, the options and the plugin and
+ * generator versions are the same as in the last successful run and every file it generated
+ * is still there with its size. All of it is recorded in a stamp file of sizes, modification
+ * times and values; the output directory is added as a source root either way.
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_SOURCES, threadSafe = true)
+public class GenerateSourcesMojo extends AbstractMojo {
+    private static final String STAMP_VERSION = "2";
+    private static final String OUTPUTS_LINE = "outputs";
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true, required = true)
+    private MojoExecution mojoExecution;
+
+    /** Excel file (xls, xlsx), CSV or TSV file, or directory of CSV and TSV files. */
+    @Parameter(property = "xmltoclass.input", required = true)
+    private File input;
+
+    /** Sheet to parse, or sheet names and patterns separated by commas. */
+    @Parameter(property = "xmltoclass.sheet", required = true)
+    private String sheet;
+
+    @Parameter(property = "xmltoclass.outputDirectory",
+            defaultValue = "${project.build.directory}/generated-sources/xml-to-class")
+    private File outputDirectory;
+
+    @Parameter(property = "xmltoclass.nameReplacementDict")
+    private File nameReplacementDict;
+
+    @Parameter(property = "xmltoclass.typeReplacementDict")
+    private File typeReplacementDict;
+
+    @Parameter(property = "xmltoclass.importsDict")
+    private File importsDict;
+
+    @Parameter(property = "xmltoclass.scopeSize", defaultValue = "9")
+    private int scopeSize;
+
+    @Parameter(property = "xmltoclass.typeColumnName", defaultValue = "Тип")
+    private String typeColumnName;
+
+    @Parameter(property = "xmltoclass.multiplicityColumnName", defaultValue = "Обязательность и кратность")
+    private String multiplicityColumnName;
+
+    @Parameter(property = "xmltoclass.validationRegex", defaultValue = "^[a-zA-ZсС][a-zA-Z0-9_&сС]*")
+    private String validationRegex;
+
+    @Parameter(property = "xmltoclass.parallelism", defaultValue = "1")
+    private int parallelism;
+
+    @Parameter(property = "xmltoclass.streamingInput", defaultValue = "false")
+    private boolean streamingInput;
+
+    @Parameter(property = "xmltoclass.asyncOutput", defaultValue = "false")
+    private boolean asyncOutput;
+
+    /** Keeps unchanged class files untouched, so the compiler does not see them as modified. */
+    @Parameter(property = "xmltoclass.incremental", defaultValue = "true")
+    private boolean incremental;
+
+    @Parameter(property = "xmltoclass.pruneStale", defaultValue = "true")
+    private boolean pruneStale;
+
+    @Parameter(property = "xmltoclass.schemaCache")
+    private File schemaCache;
+
+    @Parameter(property = "xmltoclass.mergeIdenticalClasses", defaultValue = "false")
+    private boolean mergeIdenticalClasses;
+
+    @Parameter(property = "xmltoclass.xmlMarshallers", defaultValue = "false")
+    private boolean xmlMarshallers;
+
+    /** boxed, array or list. */
+    @Parameter(property = "xmltoclass.primitiveCollections", defaultValue = "boxed")
+    private String primitiveCollections;
+
+    /** Defaults to a file named after the execution in the build directory. */
+    @Parameter(property = "xmltoclass.stampFile")
+    private File stampFile;
+
+    @Parameter(property = "xmltoclass.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("Class generation is skipped");
+            return;
+        }
+        project.addCompileSourceRoot(outputDirectory.getAbsolutePath());
+        Path stampPath = stampFile != null
+                ? stampFile.toPath()
+                : new File(project.getBuild().getDirectory(), "xml-to-class-" + mojoExecution.getExecutionId() + ".stamp").toPath();
+        String stamp = stamp();
+        if (isUpToDate(stamp, readStamp(stampPath))) {
+            getLog().info("Classes in " + outputDirectory + " are up to date");
+            return;
+        }
+        try {
+            Files.deleteIfExists(stampPath);
+            Files.createDirectories(outputDirectory.toPath());
+        }
+        catch (IOException exception) {
+            throw new MojoExecutionException("Output directory '" + outputDirectory + "' was not created: " + exception.getMessage(), exception);
+        }
+        RunMetrics metrics;
+        try {
+            metrics = new ClassGenerator(settings()).generate(input.getPath(), sheet, outputDirectory.getPath());
+        }
+        catch (RuntimeException exception) {
+            throw new MojoExecutionException("Classes were not generated from '" + input + "': " + exception.getMessage(), exception);
+        }
+        getLog().info(metrics.getClassesCreated() + " class(es) generated from " + input + " into " + outputDirectory);
+        try {
+            writeStamp(stampPath, stamp + OUTPUTS_LINE + '\n' + outputs());
+        }
+        catch (IOException exception) {
+            getLog().warn("Generated files in '" + outputDirectory + "' were not listed, the next build generates again: "
+                    + exception.getMessage());
+        }
+    }
+
+    // The recorded inputs match and every file generated by the recorded run is still there unchanged in size
+    private boolean isUpToDate(String stamp, String recordedStamp) {
+        if (recordedStamp == null || !Files.isDirectory(outputDirectory.toPath())
+                || !recordedStamp.startsWith(stamp + OUTPUTS_LINE + '\n')) {
+            return false;
+        }
+        Path outputPath = outputDirectory.toPath();
+        for (String line : recordedStamp.substring(stamp.length() + OUTPUTS_LINE.length() + 1).split("\n")) {
+            int separator = line.lastIndexOf('=');
+            if (separator < 0) continue;
+            Path file = outputPath.resolve(line.substring(0, separator));
+            try {
+                if (!Files.isRegularFile(file) || Files.size(file) != Long.parseLong(line.substring(separator + 1))) {
+                    getLog().info("Generated file '" + file + "' is missing or changed");
+                    return false;
+                }
+            }
+            catch (IOException | NumberFormatException exception) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Relative paths and sizes of the generated files
+    private String outputs() throws IOException {
+        Path outputPath = outputDirectory.toPath();
+        Map<String, Long> sizes = new TreeMap<>();
+        try (Stream<Path> files = Files.walk(outputPath)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file)) {
+                    sizes.put(outputPath.relativize(file).toString().replace('\\', '/'), Files.size(file));
+                }
+            }
+        }
+        StringBuilder outputs = new StringBuilder();
+        for (Map.Entry<String, Long> entry : sizes.entrySet()) {
+            outputs.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        return outputs.toString();
+    }
+
+    private GeneratorSettings settings() throws MojoExecutionException {
+        GeneratorSettings settings = new GeneratorSettings();
+        if (nameReplacementDict != null) {
+            settings.setNameReplacementDict(loadDictionary(nameReplacementDict));
+        }
+        if (typeReplacementDict != null) {
+            settings.setTypeReplacementDict(loadDictionary(typeReplacementDict));
+        }
+        if (importsDict != null) {
+            settings.setImportsDict(loadDictionary(importsDict));
+        }
+        settings.setFieldNameScopeSize(scopeSize);
+        settings.setColumnHeaderTemplateWithFieldType(typeColumnName);
+        settings.setColumnHeaderTemplateWithFieldMultiplicity(multiplicityColumnName);
+        settings.setValidVariableNamePattern(validationRegex);
+        settings.setParallelism(parallelism);
+        settings.setStreamingInput(streamingInput);
+        settings.setAsyncOutput(asyncOutput);
+        settings.setIncremental(incremental);
+        settings.setPruneStale(pruneStale);
+        settings.setSchemaCacheDirectory(schemaCache == null ? null : schemaCache.getPath());
+        settings.setMergeIdenticalClasses(mergeIdenticalClasses);
+        settings.setXmlMarshallers(xmlMarshallers);
+        PrimitiveCollections collections = PrimitiveCollections.forOption(primitiveCollections);
+        if (collections == null) {
+            throw new MojoExecutionException("Parameter 'primitiveCollections' must be one of boxed, array, list");
+        }
+        settings.setPrimitiveCollections(collections);
+        return settings;
+    }
+
+    private static Map<String, String> loadDictionary(File file) throws MojoExecutionException {
+        if (!file.isFile()) {
+            throw new MojoExecutionException("Dictionary file '" + file + "' does not exist");
+        }
+        return Application.loadDictionary(file.getPath());
+    }
+
+    // Inputs are compared by size and modification time, so an up-to-date check reads no file content
+    private String stamp() throws MojoExecutionException {
+        Map<String, String> entries = new TreeMap<>();
+        entries.put("version", STAMP_VERSION);
+        entries.put("pluginVersion", mojoExecution.getVersion());
+        entries.put("sheet", sheet);
+        entries.put("outputDirectory", outputDirectory.getAbsolutePath());
+        entries.put("scopeSize", String.valueOf(scopeSize));
+        entries.put("typeColumnName", typeColumnName);
+        entries.put("multiplicityColumnName", multiplicityColumnName);
+        entries.put("validationRegex", validationRegex);
+        entries.put("incremental", String.valueOf(incremental));
+        entries.put("pruneStale", String.valueOf(pruneStale));
+        entries.put("mergeIdenticalClasses", String.valueOf(mergeIdenticalClasses));
+        entries.put("xmlMarshallers", String.valueOf(xmlMarshallers));
+        entries.put("primitiveCollections", primitiveCollections);
+        try {
+            if (!input.exists()) {
+                throw new MojoExecutionException("Input '" + input + "' does not exist");
+            }
+            for (Path file : CsvWorkbookSource.listSheetFiles(input.toPath())) {
+                entries.put("input:" + file.toAbsolutePath(), fileStamp(file));
+            }
+            // A rebuilt generator keeps its version, so the jar it is loaded from is compared as well
+            Path generatorJar = Paths.get(ClassGenerator.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            if (Files.isRegularFile(generatorJar)) {
+                entries.put("generator:" + generatorJar.toAbsolutePath(), fileStamp(generatorJar));
+            }
+            for (File dictionary : new File[] {nameReplacementDict, typeReplacementDict, importsDict}) {
+                if (dictionary != null) {
+                    entries.put("dictionary:" + dictionary.getAbsolutePath(), fileStamp(dictionary.toPath()));
+                }
+            }
+        }
+        catch (IOException | URISyntaxException exception) {
+            throw new MojoExecutionException("Input '" + input + "' was not read: " + exception.getMessage(), exception);
+        }
+        StringBuilder stamp = new StringBuilder();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            stamp.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        return stamp.toString();
+    }
+
+    private static String fileStamp(Path file) throws IOException {
+        return Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+    }
+
+    private String readStamp(Path stampPath) {
+        try {
+            return Files.isRegularFile(stampPath) ? new String(Files.readAllBytes(stampPath), StandardCharsets.UTF_8) : null;
+        }
+        catch (IOException exception) {
+            getLog().warn("Stamp file '" + stampPath + "' was not read: " + exception.getMessage());
+            return null;
+        }
+    }
+
+    private void writeStamp(Path stampPath, String stamp) {
+        try {
+            Files.createDirectories(stampPath.toAbsolutePath().getParent());
+            Path temporaryPath = stampPath.resolveSibling(stampPath.getFileName() + ".tmp");
+            Files.write(temporaryPath, stamp.getBytes(StandardCharsets.UTF_8));
+            Files.move(temporaryPath, stampPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException exception) {
+            getLog().warn("Stamp file '" + stampPath + "' was not written, the next build generates again: " + exception.getMessage());
+        }
+    }
+}
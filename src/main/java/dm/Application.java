@@ -2,71 +2,169 @@ package dm;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
-import dm.creators.ClassCreator;
-import dm.creators.ClassCreatorWithPublicFields;
+import dm.creators.PrimitiveCollections;
 import org.apache.commons.cli.*;
-import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class Application {
+    private static final long DEFAULT_REQUEST_TIMEOUT_SECONDS = 120;
+    // Options naming one output file, which the concurrent jobs of a batch would overwrite
+    private static final String[] SINGLE_OUTPUT_OPTIONS = {"zip", "cjar", "model", "print"};
+    // Options of a run writing to the local disk or console, while the server answers every request with an archive
+    private static final String[] LOCAL_OUTPUT_OPTIONS = {"zip", "cjar", "model", "print", "inc"};
+
     public static void main(String[] args) {
-        CommandLine line = getConsoleArgs(args);
+        final Options options = getOptions();
+        CommandLine line = getConsoleArgs(options, args);
+        if (line == null) {
+            return;
+        }
 
-        Map<String, String> replacementNameDict = new HashMap<>();
+        GeneratorSettings settings = new GeneratorSettings();
         if (line.hasOption("nd")) {
-            replacementNameDict = loadDictionary(line.getOptionValue("nd"));
+            settings.setNameReplacementDict(loadDictionary(line.getOptionValue("nd")));
         }
-
-        Map<String, String> replacementTypeDict = new HashMap<>();
         if (line.hasOption("td")) {
-            replacementTypeDict = loadDictionary(line.getOptionValue("td"));
+            settings.setTypeReplacementDict(loadDictionary(line.getOptionValue("td")));
         }
-
-        Map<String, String> importsDict = new HashMap<>();
         if (line.hasOption("id")) {
-            importsDict = loadDictionary(line.getOptionValue("id"));
+            settings.setImportsDict(loadDictionary(line.getOptionValue("id")));
         }
-
-        String exelFile = line.getOptionValue("in");
-        String outDir = line.getOptionValue("out");
-        String nameSheet = line.getOptionValue("s");
-        int fieldNameScopeSize = 9;
-        String columnHeaderTemplateWithFieldType = "Тип";
-        String columnHeaderTemplateWithFieldMultiplicity = "Обязательность и кратность";
-        String validVariableNamePattern = "^[a-zA-ZсС][a-zA-Z0-9_&сС]*";
         if (line.hasOption("size")) {
-            fieldNameScopeSize = Integer.parseInt(line.getOptionValue("size"));
+            settings.setFieldNameScopeSize(Integer.parseInt(line.getOptionValue("size")));
         }
         if (line.hasOption("tcolname")) {
-            columnHeaderTemplateWithFieldType = line.getOptionValue("tcolname");
+            settings.setColumnHeaderTemplateWithFieldType(line.getOptionValue("tcolname"));
         }
         if (line.hasOption("mcolname")) {
-            columnHeaderTemplateWithFieldMultiplicity = line.getOptionValue("mcolname");
+            settings.setColumnHeaderTemplateWithFieldMultiplicity(line.getOptionValue("mcolname"));
         }
         if (line.hasOption("vreg")) {
-            validVariableNamePattern = line.getOptionValue("vreg");
+            settings.setValidVariableNamePattern(line.getOptionValue("vreg"));
+        }
+        if (line.hasOption("threads")) {
+            settings.setParallelism(Integer.parseInt(line.getOptionValue("threads")));
+        }
+        settings.setStreamingInput(line.hasOption("stream"));
+        settings.setAsyncOutput(line.hasOption("async"));
+        settings.setIncremental(line.hasOption("inc"));
+        settings.setPruneStale(line.hasOption("prune"));
+        if (line.hasOption("progress")) {
+            settings.setProgressIntervalSeconds(Integer.parseInt(line.getOptionValue("progress")));
+        }
+        String reportFile = line.getOptionValue("report");
+        settings.setCompiledJarPath(line.getOptionValue("cjar"));
+        settings.setSchemaCacheDirectory(line.getOptionValue("cache"));
+        settings.setOutputArchivePath(line.getOptionValue("zip"));
+        settings.setMergeIdenticalClasses(line.hasOption("dedup"));
+        settings.setXmlMarshallers(line.hasOption("stax"));
+        settings.setPrintClasses(line.hasOption("print"));
+        settings.setClassModelPath(line.getOptionValue("model"));
+        settings.setVerbose(line.hasOption("verbose"));
+        if (line.hasOption("primitives")) {
+            PrimitiveCollections primitiveCollections = PrimitiveCollections.forOption(line.getOptionValue("primitives"));
+            if (primitiveCollections == null) {
+                System.err.println("Option 'primitives' must be one of boxed, array, list");
+                return;
+            }
+            settings.setPrimitiveCollections(primitiveCollections);
         }
 
-        ClassCreator classCreator = new ClassCreatorWithPublicFields(
-                outDir,
-                replacementNameDict,
-                replacementTypeDict,
-                importsDict);
+        if (line.hasOption("serve")) {
+            for (String option : LOCAL_OUTPUT_OPTIONS) {
+                if (line.hasOption(option)) {
+                    System.err.println("Option '" + option + "' cannot be used in server mode, every request gets its classes as an archive");
+                    return;
+                }
+            }
+            int maxConcurrentRequests = Runtime.getRuntime().availableProcessors();
+            if (line.hasOption("maxreq")) {
+                maxConcurrentRequests = Integer.parseInt(line.getOptionValue("maxreq"));
+            }
+            long requestTimeoutSeconds = DEFAULT_REQUEST_TIMEOUT_SECONDS;
+            if (line.hasOption("timeout")) {
+                requestTimeoutSeconds = Long.parseLong(line.getOptionValue("timeout"));
+            }
+            new GenerationServer(settings, Integer.parseInt(line.getOptionValue("serve")),
+                    maxConcurrentRequests, TimeUnit.SECONDS.toMillis(requestTimeoutSeconds)).start();
+            return;
+        }
+
+        ClassGenerator classGenerator = new ClassGenerator(settings);
+        String exelFile = line.getOptionValue("in");
+        String outDir = line.getOptionValue("out");
+        String nameSheet = line.getOptionValue("s");
+
+        if (line.hasOption("batch")) {
+            for (String option : SINGLE_OUTPUT_OPTIONS) {
+                if (line.hasOption(option)) {
+                    System.err.println("Option '" + option + "' cannot be used in batch mode, it writes one output for a single job");
+                    return;
+                }
+            }
+            String batch = line.getOptionValue("batch");
+            List<GenerationJob> jobs;
+            if (Files.isRegularFile(Paths.get(batch))) {
+                jobs = BatchGenerator.readManifest(Paths.get(batch));
+            }
+            else if (nameSheet != null && outDir != null) {
+                jobs = BatchGenerator.expandGlob(Paths.get(""), batch, nameSheet, outDir);
+            }
+            else {
+                printHelp(options);
+                return;
+            }
+            int concurrency = Runtime.getRuntime().availableProcessors();
+            if (line.hasOption("jobs")) {
+                concurrency = Integer.parseInt(line.getOptionValue("jobs"));
+            }
+            List<BatchGenerator.JobResult> results;
+            try {
+                results = new BatchGenerator(classGenerator, concurrency).run(jobs);
+            }
+            catch (IllegalArgumentException exception) {
+                System.err.println(exception.getMessage());
+                System.exit(1);
+                return;
+            }
+            BatchGenerator.printReport(results, System.out);
+            if (reportFile != null) {
+                RunMetrics.writeReport(Paths.get(reportFile), BatchGenerator.toReport(results));
+            }
+            if (results.stream().anyMatch(result -> !result.isSucceeded())) {
+                System.exit(1);
+            }
+            return;
+        }
 
-        XmlToClassesParser parser = new XmlToClassesParser(
-                exelFile,
-                classCreator,
-                fieldNameScopeSize,
-                columnHeaderTemplateWithFieldType,
-                columnHeaderTemplateWithFieldMultiplicity,
-                validVariableNamePattern);
-        parser.parse(nameSheet);
+        if (exelFile == null || (outDir == null && !line.hasOption("cjar") && !line.hasOption("zip")) || nameSheet == null) {
+            printHelp(options);
+            return;
+        }
+        if (line.hasOption("watch")) {
+            settings.setIncremental(true);
+            new WorkbookWatcher(classGenerator, exelFile, nameSheet, outDir).watch();
+            return;
+        }
+        RunMetrics metrics = new RunMetrics();
+        try {
+            classGenerator.generate(exelFile, nameSheet, outDir, null, metrics);
+            System.out.println(metrics.getClassesCreated() + " class(es) created"
+                    + (metrics.getClassesMerged() > 0 ? ", " + metrics.getClassesMerged() + " merged" : ""));
+        }
+        finally {
+            if (reportFile != null) {
+                RunMetrics.writeReport(Paths.get(reportFile), metrics.toReport());
+            }
+        }
     }
 
-    static Map<String, String> loadDictionary(String path) {
+    public static Map<String, String> loadDictionary(String path) {
         Map<String, String> dict = new HashMap<>();
         try {
             Gson gson = new Gson();
@@ -81,11 +179,11 @@ public class Application {
         }
     }
 
-    static CommandLine getConsoleArgs(String[] args) {
+    static Options getOptions() {
         final Options options = new Options();
         options.addOption(
                 Option.builder("in")
-                        .required(true)
+                        .required(false)
                         .longOpt("input")
                         .desc("Input excel file path")
                         .hasArg()
@@ -93,7 +191,7 @@ public class Application {
         );
         options.addOption(
                 Option.builder("out")
-                        .required(true)
+                        .required(false)
                         .longOpt("output")
                         .desc("Output files path")
                         .hasArg()
@@ -101,9 +199,10 @@ public class Application {
         );
         options.addOption(
                 Option.builder("s")
-                        .required(true)
+                        .required(false)
                         .longOpt("sheet")
-                        .desc("Name sheet for parsing")
+                        .desc("Name sheet for parsing; several names and patterns such as \"Order*\" are separated "
+                                + "by commas, a pattern selects the matched sheets no other parsed sheet references, \"*\" every root sheet")
                         .hasArg()
                         .build()
         );
@@ -164,14 +263,197 @@ public class Application {
                         .hasArg()
                         .build()
         );
+        options.addOption(
+                Option.builder("threads")
+                        .required(false)
+                        .longOpt("parallelism")
+                        .desc("Number of threads parsing linked sheets")
+                        .hasArg()
+                        .type(Integer.class)
+                        .build()
+        );
+        options.addOption(
+                Option.builder("async")
+                        .required(false)
+                        .longOpt("async-output")
+                        .desc("Write class files from a background thread in batches")
+                        .build()
+        );
+        options.addOption(
+                Option.builder("inc")
+                        .required(false)
+                        .longOpt("incremental")
+                        .desc("Rewrite only classes whose content changed since the previous run")
+                        .build()
+        );
+        options.addOption(
+                Option.builder("prune")
+                        .required(false)
+                        .longOpt("prune-stale")
+                        .desc("With --incremental, delete classes generated earlier that are no longer produced")
+                        .build()
+        );
+        options.addOption(
+                Option.builder("stream")
+                        .required(false)
+                        .longOpt("streaming-input")
+                        .desc("Read the excel file sheet by sheet with the event model instead of loading it whole")
+                        .build()
+        );
+        options.addOption(
+                Option.builder("batch")
+                        .required(false)
+                        .longOpt("batch")
+                        .desc("Manifest file with 'workbook;sheet;output' lines, or a workbook glob used with -s and -out")
+                        .hasArg()
+                        .build()
+        );
+        options.addOption(
+                Option.builder("jobs")
+                        .required(false)
+                        .longOpt("batch-jobs")
+                        .desc("Number of workbooks processed concurrently in batch mode")
+                        .hasArg()
+                        .type(Integer.class)
+                        .build()
+        );
+        options.addOption(
+                Option.builder("watch")
+                        .required(false)
+                        .longOpt("watch")
+                        .desc("Keep running and regenerate changed classes every time the excel file is saved")
+                        .build()
+        );
+        options.addOption(
+                Option.builder("report")
+                        .required(false)
+                        .longOpt("report")
+                        .desc("Write counters, timings and aggregated warnings of the run to a JSON file")
+                        .hasArg()
+                        .build()
+        );
+        options.addOption(
+                Option.builder("progress")
+                        .required(false)
+                        .longOpt("progress-interval")
+                        .desc("Print a progress line every given number of seconds")
+                        .hasArg()
+                        .type(Integer.class)
+                        .build()
+        );
+        options.addOption(
+                Option.builder("verbose")
+                        .required(false)
+                        .longOpt("verbose")
+                        .desc("Print every created class, by default only their number is printed")
+                        .build()
+        );
+        options.addOption(
+                Option.builder("cjar")
+                        .required(false)
+                        .longOpt("compile-to-jar")
+                        .desc("Compile the generated classes in memory and write them to this jar instead of source files")
+                        .hasArg()
+                        .build()
+        );
+        options.addOption(
+                Option.builder("cache")
+                        .required(false)
+                        .longOpt("schema-cache")
+                        .desc("Directory of parsed schemas reused while the workbook, sheet and parser settings are unchanged")
+                        .hasArg()
+                        .build()
+        );
+        options.addOption(
+                Option.builder("zip")
+                        .required(false)
+                        .longOpt("output-archive")
+                        .desc("Write all class files into one zip, or a source jar when the name ends with .jar")
+                        .hasArg()
+                        .build()
+        );
+        options.addOption(
+                Option.builder("dedup")
+                        .required(false)
+                        .longOpt("merge-identical-classes")
+                        .desc("Generate one class for classes with the same fields and retype the fields referencing the others")
+                        .build()
+        );
+        options.addOption(
+                Option.builder("stax")
+                        .required(false)
+                        .longOpt("xml-marshallers")
+                        .desc("Also generate a StAX reader and writer class for every class, named <Class>XmlMarshaller")
+                        .build()
+        );
+        options.addOption(
+                Option.builder("primitives")
+                        .required(false)
+                        .longOpt("primitive-collections")
+                        .desc("Repeated int, double, boolean and other primitive fields as boxed lists (default), "
+                                + "arrays or generated primitive lists such as IntList: boxed, array or list")
+                        .hasArg()
+                        .build()
+        );
+        options.addOption(
+                Option.builder("print")
+                        .required(false)
+                        .longOpt("print-classes")
+                        .desc("Also list every class with its fields on the console, from the same parse")
+                        .build()
+        );
+        options.addOption(
+                Option.builder("model")
+                        .required(false)
+                        .longOpt("class-model")
+                        .desc("Also write the class model with sheet and Java names and types to this JSON file, from the same parse")
+                        .hasArg()
+                        .build()
+        );
+        options.addOption(
+                Option.builder("serve")
+                        .required(false)
+                        .longOpt("serve")
+                        .desc("Serve generation over HTTP on this local port, workbooks are posted to /generate")
+                        .hasArg()
+                        .type(Integer.class)
+                        .build()
+        );
+        options.addOption(
+                Option.builder("maxreq")
+                        .required(false)
+                        .longOpt("max-concurrent-requests")
+                        .desc("Number of generations the server runs at once (default: number of processors)")
+                        .hasArg()
+                        .type(Integer.class)
+                        .build()
+        );
+        options.addOption(
+                Option.builder("timeout")
+                        .required(false)
+                        .longOpt("request-timeout")
+                        .desc("Seconds a server request may wait and run before it fails (default: "
+                                + DEFAULT_REQUEST_TIMEOUT_SECONDS + ")")
+                        .hasArg()
+                        .type(Long.class)
+                        .build()
+        );
+        return options;
+    }
+
+    static CommandLine getConsoleArgs(Options options, String[] args) {
         CommandLineParser commandLineParser = new DefaultParser();
         try {
             return commandLineParser.parse(options, args);
         }
         catch (ParseException exception) {
-            HelpFormatter formatter = new HelpFormatter();
-            formatter.printHelp( "ant", options);
+            printHelp(options);
             return null;
         }
     }
+
+    static void printHelp(Options options) {
+        HelpFormatter formatter = new HelpFormatter();
+        formatter.printHelp( "ant", options);
+    }
 }
@@ -0,0 +1,229 @@
+package dm;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs many generation jobs in one JVM on a bounded pool. Dictionaries and settings
+ * are shared; a failing job is reported and does not stop the others.
+ */
+public class BatchGenerator {
+    public static final String WORKBOOK_NAME_PLACEHOLDER = "{workbook}";
+    private static final String MANIFEST_SEPARATOR = ";";
+    private static final String GLOB_SYMBOLS = "*?[{";
+
+    private final ClassGenerator classGenerator;
+    private final int concurrency;
+
+    public BatchGenerator(ClassGenerator classGenerator, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Batch concurrency must be positive: " + concurrency);
+        }
+        this.classGenerator = classGenerator;
+        this.concurrency = concurrency;
+    }
+
+    public List<JobResult> run(List<GenerationJob> jobs) {
+        List<JobResult> results = new ArrayList<>();
+        if (jobs.isEmpty()) {
+            return results;
+        }
+        checkOutputDirectories(jobs);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, jobs.size()));
+        try {
+            List<Future<JobResult>> futures = new ArrayList<>();
+            for (GenerationJob job : jobs) {
+                futures.add(executor.submit(() -> runJob(job)));
+            }
+            for (Future<JobResult> future : futures) {
+                results.add(future.get());
+            }
+        }
+        catch (Exception exception) {
+            throw new RuntimeException("Batch was interrupted: " + exception.getMessage());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    // Jobs run concurrently, so two of them writing to one directory would race on its files
+    // and on the incremental manifest
+    public static void checkOutputDirectories(List<GenerationJob> jobs) {
+        Map<Path, GenerationJob> jobsByOutput = new HashMap<>();
+        for (GenerationJob job : jobs) {
+            Path output = Paths.get(job.getOutputDirectory()).toAbsolutePath().normalize();
+            GenerationJob otherJob = jobsByOutput.putIfAbsent(output, job);
+            if (otherJob != null) {
+                throw new IllegalArgumentException("Output directory '" + output + "' is shared by jobs " + otherJob
+                        + " and " + job + ", give every job its own directory, for example with '"
+                        + WORKBOOK_NAME_PLACEHOLDER + "'");
+            }
+        }
+    }
+
+    private JobResult runJob(GenerationJob job) {
+        long start = System.nanoTime();
+        RunMetrics metrics = new RunMetrics();
+        try {
+            Files.createDirectories(Paths.get(job.getOutputDirectory()));
+            classGenerator.generate(job.getWorkbookPath(), job.getSheetName(), job.getOutputDirectory(), null, metrics);
+            return new JobResult(job, null, elapsedMillis(start), metrics);
+        }
+        catch (Exception | StackOverflowError | OutOfMemoryError exception) {
+            String error = exception.getMessage() == null ? exception.toString() : exception.getMessage();
+            return new JobResult(job, error, elapsedMillis(start), metrics);
+        }
+    }
+
+    public static void printReport(List<JobResult> results, PrintStream out) {
+        int succeeded = 0;
+        for (JobResult result : results) {
+            if (result.isSucceeded()) {
+                succeeded++;
+                out.println("[OK]     " + result.getJob() + " (" + result.getDurationMillis() + " ms)");
+            }
+            else {
+                out.println("[FAILED] " + result.getJob() + " (" + result.getDurationMillis() + " ms): "
+                        + result.getError());
+            }
+        }
+        out.println(succeeded + " of " + results.size() + " jobs succeeded");
+    }
+
+    public static List<Map<String, Object>> toReport(List<JobResult> results) {
+        List<Map<String, Object>> report = new ArrayList<>();
+        for (JobResult result : results) {
+            Map<String, Object> job = new LinkedHashMap<>();
+            job.put("workbook", result.getJob().getWorkbookPath());
+            job.put("sheet", result.getJob().getSheetName());
+            job.put("outputDirectory", result.getJob().getOutputDirectory());
+            job.putAll(result.getMetrics().toReport());
+            job.put("succeeded", result.isSucceeded());
+            job.put("error", result.getError());
+            report.add(job);
+        }
+        return report;
+    }
+
+    // Each non-empty line is "workbook ; sheet ; output directory", '#' starts a comment.
+    // Relative paths are resolved against the manifest directory.
+    public static List<GenerationJob> readManifest(Path manifestPath) {
+        Path baseDirectory = manifestPath.toAbsolutePath().getParent();
+        List<GenerationJob> jobs = new ArrayList<>();
+        try {
+            List<String> lines = Files.readAllLines(manifestPath, StandardCharsets.UTF_8);
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i).trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split(MANIFEST_SEPARATOR);
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("line " + (i + 1) + " must have 3 parts separated by '"
+                            + MANIFEST_SEPARATOR + "': " + line);
+                }
+                jobs.addAll(expandGlob(baseDirectory, parts[0].trim(), parts[1].trim(), parts[2].trim()));
+            }
+        }
+        catch (Exception exception) {
+            throw new RuntimeException("Batch manifest '" + manifestPath + "' was not read: " + exception.getMessage());
+        }
+        return jobs;
+    }
+
+    // A workbook pattern with glob symbols is matched against files below its fixed leading directories;
+    // "{workbook}" in the output directory is replaced with the workbook file name without extension.
+    public static List<GenerationJob> expandGlob(Path baseDirectory, String workbookPattern,
+                                                 String sheetName, String outputDirectory) {
+        List<GenerationJob> jobs = new ArrayList<>();
+        for (Path workbook : findWorkbooks(baseDirectory, workbookPattern)) {
+            String fileName = workbook.getFileName().toString();
+            int extension = fileName.lastIndexOf('.');
+            String workbookName = extension > 0 ? fileName.substring(0, extension) : fileName;
+            String output = outputDirectory.replace(WORKBOOK_NAME_PLACEHOLDER, workbookName);
+            jobs.add(new GenerationJob(
+                    workbook.toString(),
+                    sheetName,
+                    baseDirectory.resolve(output).toString()));
+        }
+        return jobs;
+    }
+
+    private static List<Path> findWorkbooks(Path baseDirectory, String workbookPattern) {
+        String pattern = workbookPattern.replace('\\', '/');
+        int firstGlobSymbol = -1;
+        for (int i = 0; i < pattern.length() && firstGlobSymbol < 0; i++) {
+            if (GLOB_SYMBOLS.indexOf(pattern.charAt(i)) >= 0) {
+                firstGlobSymbol = i;
+            }
+        }
+        if (firstGlobSymbol < 0) {
+            List<Path> workbooks = new ArrayList<>();
+            workbooks.add(baseDirectory.resolve(workbookPattern));
+            return workbooks;
+        }
+        int lastSlash = pattern.lastIndexOf('/', firstGlobSymbol);
+        Path root = baseDirectory.resolve(lastSlash < 0 ? "" : pattern.substring(0, lastSlash));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern.substring(lastSlash + 1));
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(root.relativize(path)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        catch (Exception exception) {
+            throw new RuntimeException("Workbooks matching '" + workbookPattern + "' were not listed: "
+                    + exception.getMessage());
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    public static class JobResult {
+        private final GenerationJob job;
+        private final String error;
+        private final long durationMillis;
+        private final RunMetrics metrics;
+
+        JobResult(GenerationJob job, String error, long durationMillis, RunMetrics metrics) {
+            this.job = job;
+            this.error = error;
+            this.durationMillis = durationMillis;
+            this.metrics = metrics;
+        }
+
+        public GenerationJob getJob() {
+            return job;
+        }
+
+        public boolean isSucceeded() {
+            return error == null;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public RunMetrics getMetrics() {
+            return metrics;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package dm;
+
+import dm.creators.*;
+import dm.sources.WorkbookSource;
+import dm.sources.WorkbookSources;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class ClassGenerator {
+    private static final int ASYNC_QUEUE_CAPACITY = 1024;
+    private static final int ASYNC_BATCH_SIZE = 64;
+
+    private final GeneratorSettings settings;
+    private final FieldDictionary fieldDictionary;
+    private final SchemaCache schemaCache;
+
+    // Dictionaries are compiled once here and shared by every run of this generator
+    public ClassGenerator(GeneratorSettings settings) {
+        this(settings, settings.getSchemaCacheDirectory() == null
+                ? null
+                : new SchemaCache(settings.getSchemaCacheDirectory()));
+    }
+
+    public ClassGenerator(GeneratorSettings settings, SchemaCache schemaCache) {
+        this.settings = settings;
+        this.fieldDictionary = new FieldDictionary(
+                settings.getNameReplacementDict(),
+                settings.getTypeReplacementDict(),
+                settings.getImportsDict());
+        this.schemaCache = schemaCache;
+    }
+
+    public RunMetrics generate(String excelFile, String nameSheet, String outDir) {
+        RunMetrics metrics = new RunMetrics();
+        generate(excelFile, nameSheet, outDir, null, metrics);
+        return metrics;
+    }
+
+    public void generate(String excelFile, String nameSheet, String outDir,
+                         SheetModelCache sheetModelCache, RunMetrics metrics) {
+        run(() -> {
+            if (settings.getCompiledJarPath() != null) {
+                compileClasses(excelFile, nameSheet, sheetModelCache, metrics);
+            }
+            else {
+                generateClasses(excelFile, nameSheet, outDir, settings.getOutputArchivePath(), true, sheetModelCache, metrics);
+            }
+        }, metrics);
+    }
+
+    // Writes the classes into the given zip or source jar whatever the output settings are, without the
+    // console listing and the class model, which belong to a single run
+    public void generateArchive(String excelFile, String nameSheet, String archivePath, RunMetrics metrics) {
+        run(() -> generateClasses(excelFile, nameSheet, null, archivePath, false, null, metrics), metrics);
+    }
+
+    private void run(Runnable generation, RunMetrics metrics) {
+        metrics.setVerbose(settings.isVerbose());
+        ScheduledExecutorService progressReporter = startProgressReporter(metrics);
+        try {
+            generation.run();
+            metrics.finish(null);
+        }
+        catch (RuntimeException exception) {
+            metrics.finish(exception.getMessage());
+            throw exception;
+        }
+        finally {
+            if (progressReporter != null) {
+                progressReporter.shutdownNow();
+            }
+            metrics.printWarnings(System.err);
+        }
+    }
+
+    private void generateClasses(String excelFile, String nameSheet, String outDir, String archiveFile,
+                                 boolean extraSinks, SheetModelCache sheetModelCache, RunMetrics metrics) {
+        ClassFileStore classFileStore;
+        if (archiveFile != null) {
+            // Classes are resolved against the archive directory and stored as entries relative to it
+            Path archivePath = Paths.get(archiveFile).toAbsolutePath();
+            outDir = archivePath.getParent().toString();
+            classFileStore = new MeteredClassFileStore(new ArchiveClassFileStore(archivePath, archivePath.getParent()), metrics);
+        }
+        else {
+            if (!Files.isDirectory(Paths.get(outDir))) {
+                throw new IllegalArgumentException("Output directory '" + outDir + "' does not exist");
+            }
+            classFileStore = new MeteredClassFileStore(settings.isIncremental()
+                    ? new IncrementalClassFileStore(outDir, settings.isPruneStale())
+                    : new NewClassFileStore(), metrics);
+        }
+        ClassFileWriter classFileWriter = settings.isAsyncOutput()
+                ? new AsyncClassFileWriter(classFileStore, ASYNC_QUEUE_CAPACITY, ASYNC_BATCH_SIZE)
+                : new SyncClassFileWriter(classFileStore);
+
+        CompletingClassCreator sourceCreator = new CompletingClassCreator(new ClassCreatorWithPublicFields(
+                outDir,
+                fieldDictionary,
+                classFileWriter,
+                settings.isXmlMarshallers(),
+                settings.getPrimitiveCollections()), classFileStore::markRunComplete);
+        CompletingClassCreator sinksCreator = extraSinks ? withExtraSinks(sourceCreator) : sourceCreator;
+        try (ClassCreator classCreator = mergeIdenticalClasses(sinksCreator, metrics)) {
+            parseClasses(excelFile, nameSheet, classCreator, sheetModelCache, metrics);
+            sourceCreator.markParsed();
+            sinksCreator.markParsed();
+        }
+    }
+
+    // Compiles the generated classes in memory and writes them as one jar, no source file is written
+    private void compileClasses(String excelFile, String nameSheet, SheetModelCache sheetModelCache, RunMetrics metrics) {
+        InMemoryClassCreator classCreator = new InMemoryClassCreator(
+                fieldDictionary, InMemoryClassCreator.class.getClassLoader(),
+                settings.isXmlMarshallers(), settings.getPrimitiveCollections());
+        CompletingClassCreator compilingCreator = new CompletingClassCreator(classCreator, classCreator::markRunComplete);
+        CompletingClassCreator sinksCreator = withExtraSinks(compilingCreator);
+        try (ClassCreator mergingClassCreator = mergeIdenticalClasses(sinksCreator, metrics)) {
+            parseClasses(excelFile, nameSheet, mergingClassCreator, sheetModelCache, metrics);
+            compilingCreator.markParsed();
+            sinksCreator.markParsed();
+        }
+        classCreator.writeJar(Paths.get(settings.getCompiledJarPath()));
+        System.out.println(classCreator.getClassBytes().size() + " class(es) compiled into '"
+                + settings.getCompiledJarPath() + "'");
+    }
+
+    // The console listing and the class model are fed from the same parse on their own threads; the
+    // generated classes are the required sink, a failure of the others is only reported. The model
+    // is written only when every class of a successful parse reached the sinks
+    private CompletingClassCreator withExtraSinks(ClassCreator classCreator) {
+        if (!settings.isPrintClasses() && settings.getClassModelPath() == null) {
+            return new CompletingClassCreator(classCreator, () -> { });
+        }
+        FanOutClassCreator fanOut = new FanOutClassCreator(ASYNC_QUEUE_CAPACITY).addSink("classes", classCreator, true);
+        if (settings.isPrintClasses()) {
+            fanOut.addSink("console", new PrintClassToConsole(), false);
+        }
+        if (settings.getClassModelPath() == null) {
+            return new CompletingClassCreator(fanOut, () -> { });
+        }
+        ClassModelWriter classModelWriter = new ClassModelWriter(Paths.get(settings.getClassModelPath()), fieldDictionary);
+        fanOut.addSink("model", classModelWriter, false);
+        return new CompletingClassCreator(fanOut, classModelWriter::markRunComplete);
+    }
+
+    // Merging follows the schema cache, so cached schemas do not depend on it
+    private ClassCreator mergeIdenticalClasses(ClassCreator classCreator, RunMetrics metrics) {
+        return settings.isMergeIdenticalClasses() ? new ShapeDeduplicatingClassCreator(classCreator, metrics) : classCreator;
+    }
+
+    // A schema cached for the same workbook, sheet and parser settings is replayed without opening the workbook
+    private void parseClasses(String excelFile, String nameSheet, ClassCreator classCreator,
+                              SheetModelCache sheetModelCache, RunMetrics metrics) {
+        if (schemaCache == null) {
+            try (WorkbookSource workbook = openWorkbook(excelFile, metrics)) {
+                newParser(workbook, classCreator, sheetModelCache, metrics).parse(nameSheet);
+            }
+            return;
+        }
+        String key = schemaCache.key(excelFile, nameSheet, settings);
+        ParsedSchema schema = schemaCache.load(key);
+        if (schema != null) {
+            metrics.recordSchemaCacheHit();
+            schema.replay(classCreator, metrics);
+            return;
+        }
+        schema = new ParsedSchema();
+        try (WorkbookSource workbook = openWorkbook(excelFile, metrics)) {
+            newParser(workbook, classCreator, sheetModelCache, metrics).parse(nameSheet, schema);
+        }
+        schemaCache.store(key, schema);
+    }
+
+    private XmlToClassesParser newParser(WorkbookSource workbook, ClassCreator classCreator,
+                                         SheetModelCache sheetModelCache, RunMetrics metrics) {
+        return new XmlToClassesParser(
+                workbook,
+                classCreator,
+                settings.getFieldNameScopeSize(),
+                settings.getColumnHeaderTemplateWithFieldType(),
+                settings.getColumnHeaderTemplateWithFieldMultiplicity(),
+                settings.getValidVariableNamePattern(),
+                settings.getParallelism(),
+                sheetModelCache,
+                metrics);
+    }
+
+    private WorkbookSource openWorkbook(String excelFile, RunMetrics metrics) {
+        long start = System.nanoTime();
+        WorkbookSource workbook = WorkbookSources.open(excelFile, settings.isStreamingInput());
+        metrics.recordWorkbookOpen(System.nanoTime() - start);
+        return workbook;
+    }
+
+    private ScheduledExecutorService startProgressReporter(RunMetrics metrics) {
+        if (settings.getProgressIntervalSeconds() <= 0) {
+            return null;
+        }
+        ScheduledExecutorService progressReporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "progress-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        progressReporter.scheduleAtFixedRate(() -> System.err.println(metrics.getProgressLine()),
+                settings.getProgressIntervalSeconds(), settings.getProgressIntervalSeconds(), TimeUnit.SECONDS);
+        return progressReporter;
+    }
+
+    // Marks the run complete when closed after a parse that succeeded with every class created, so the
+    // store or sink learns it on the thread that closes it, whichever thread created the classes
+    private static class CompletingClassCreator implements ClassCreator {
+        private final ClassCreator classCreator;
+        private final Runnable runComplete;
+        private volatile boolean parsed;
+        private volatile boolean failed;
+
+        CompletingClassCreator(ClassCreator classCreator, Runnable runComplete) {
+            this.classCreator = classCreator;
+            this.runComplete = runComplete;
+        }
+
+        void markParsed() {
+            parsed = true;
+        }
+
+        @Override
+        public void create(String classType, Collection<FieldInfo> fields) {
+            try {
+                classCreator.create(classType, fields);
+            }
+            catch (RuntimeException exception) {
+                failed = true;
+                throw exception;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (parsed && !failed) {
+                runComplete.run();
+            }
+            classCreator.close();
+        }
+    }
+}
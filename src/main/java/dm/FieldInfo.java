@@ -8,11 +8,17 @@ public class FieldInfo {
     private final String name;
     private final String type;
     private final MultiplicityType multiplicityType;
+    private final String declaredClass;
 
     public FieldInfo(String name, String type, MultiplicityType multiplicityType) {
+        this(name, type, multiplicityType, null);
+    }
+
+    public FieldInfo(String name, String type, MultiplicityType multiplicityType, String declaredClass) {
         this.name = name.trim();
         this.type = type.trim();
         this.multiplicityType = multiplicityType;
+        this.declaredClass = declaredClass;
     }
 
     public String getName() {
@@ -27,6 +33,20 @@ public class FieldInfo {
         return multiplicityType;
     }
 
+    // Class declared by the rows nested under this field, null when nothing is nested
+    public String getDeclaredClass() {
+        return declaredClass;
+    }
+
+    // Copy that declares the class named by its type, or by its capitalized name when the type is empty
+    public FieldInfo declaringClass() {
+        String className = type;
+        if (className.isEmpty() && !name.isEmpty()) {
+            className = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+        return new FieldInfo(name, type, multiplicityType, className);
+    }
+
     @Override
     public String toString() {
         return name + "  <" + type + "> ";
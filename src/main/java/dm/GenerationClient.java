@@ -0,0 +1,134 @@
+package dm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Client of a local {@link GenerationServer}, for tests and build scripts: posts a workbook
+ * and returns the archive with the classes, or reads the service counters.
+ */
+public class GenerationClient {
+    private final String baseUrl;
+
+    public GenerationClient(int port) {
+        this("http://127.0.0.1:" + port);
+    }
+
+    public GenerationClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public Result generate(Path workbook, String sheet) {
+        return generate(workbook, sheet, false);
+    }
+
+    public Result generate(Path workbook, String sheet, boolean jar) {
+        return generate(workbook, sheet, jar, Collections.<String, String>emptyMap());
+    }
+
+    // Options are the dedup, stax and primitives parameters of the server, such as primitives=list
+    public Result generate(Path workbook, String sheet, boolean jar, Map<String, String> options) {
+        try {
+            StringBuilder query = new StringBuilder("sheet=").append(URLEncoder.encode(sheet, "UTF-8"))
+                    .append("&name=").append(URLEncoder.encode(workbook.getFileName().toString(), "UTF-8"))
+                    .append(jar ? "&archive=jar" : "");
+            for (Map.Entry<String, String> option : options.entrySet()) {
+                query.append('&').append(URLEncoder.encode(option.getKey(), "UTF-8"))
+                        .append('=').append(URLEncoder.encode(option.getValue(), "UTF-8"));
+            }
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/generate?" + query).openConnection();
+            try {
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(Files.size(workbook));
+                try (OutputStream out = connection.getOutputStream()) {
+                    Files.copy(workbook, out);
+                }
+                byte[] body = readBody(connection);
+                if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                    throw new RuntimeException("Classes were not generated: " + connection.getResponseCode() + " "
+                            + new String(body, StandardCharsets.UTF_8));
+                }
+                return new Result(body,
+                        Long.parseLong(connection.getHeaderField("X-Classes-Created")),
+                        "hit".equals(connection.getHeaderField("X-Schema-Cache")));
+            }
+            finally {
+                connection.disconnect();
+            }
+        }
+        catch (IOException exception) {
+            throw new RuntimeException("Workbook '" + workbook + "' was not sent: " + exception.getMessage());
+        }
+    }
+
+    // Service counters as the JSON the server returns
+    public String metrics() {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/metrics").openConnection();
+            try {
+                byte[] body = readBody(connection);
+                if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                    throw new RuntimeException("Metrics were not read: " + connection.getResponseCode());
+                }
+                return new String(body, StandardCharsets.UTF_8);
+            }
+            finally {
+                connection.disconnect();
+            }
+        }
+        catch (IOException exception) {
+            throw new RuntimeException("Metrics were not read: " + exception.getMessage());
+        }
+    }
+
+    private static byte[] readBody(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (in == null) {
+            return body.toByteArray();
+        }
+        try (InputStream stream = in) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        }
+        return body.toByteArray();
+    }
+
+    public static class Result {
+        private final byte[] archive;
+        private final long classesCreated;
+        private final boolean schemaCacheHit;
+
+        Result(byte[] archive, long classesCreated, boolean schemaCacheHit) {
+            this.archive = archive;
+            this.classesCreated = classesCreated;
+            this.schemaCacheHit = schemaCacheHit;
+        }
+
+        public byte[] getArchive() {
+            return archive;
+        }
+
+        public long getClassesCreated() {
+            return classesCreated;
+        }
+
+        public boolean isSchemaCacheHit() {
+            return schemaCacheHit;
+        }
+    }
+}
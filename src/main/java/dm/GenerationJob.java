@@ -0,0 +1,30 @@
+package dm;
+
+public class GenerationJob {
+    private final String workbookPath;
+    private final String sheetName;
+    private final String outputDirectory;
+
+    public GenerationJob(String workbookPath, String sheetName, String outputDirectory) {
+        this.workbookPath = workbookPath;
+        this.sheetName = sheetName;
+        this.outputDirectory = outputDirectory;
+    }
+
+    public String getWorkbookPath() {
+        return workbookPath;
+    }
+
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    public String getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    @Override
+    public String toString() {
+        return "'" + workbookPath + "' sheet '" + sheetName + "' -> '" + outputDirectory + "'";
+    }
+}
@@ -0,0 +1,373 @@
+package dm;
+
+import com.google.gson.GsonBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dm.creators.PrimitiveCollections;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local HTTP service that keeps one warm generator: dictionaries are compiled once and
+ * parsed schemas are cached in memory by workbook hash, so repeated uploads of the same
+ * workbook skip parsing. POST /generate?sheet=Root&amp;name=spec.xlsx with the workbook as the
+ * body returns the classes as a zip (a source jar with archive=jar); the dedup, stax and
+ * primitives parameters override the rendering options of the server for one request, each
+ * combination with its own generator. GET /metrics returns the service counters as JSON. At most the configured number of generations run at once,
+ * a request waits for a free slot no longer than its timeout. Requests run on virtual
+ * threads when the JDK has them.
+ */
+public class GenerationServer {
+    private static final String[] WORKBOOK_EXTENSIONS = {".xlsx", ".xls", ".csv", ".tsv"};
+
+    private final GeneratorSettings settings;
+    private final SchemaCache schemaCache;
+    private final ConcurrentMap<String, ClassGenerator> classGenerators;
+    private final int port;
+    private final int maxConcurrentRequests;
+    private final long requestTimeoutMillis;
+    private final Semaphore generationSlots;
+    private final ExecutorService requestExecutor;
+    private final boolean virtualThreads;
+    private final LongAdder requestsTotal;
+    private final LongAdder requestsSucceeded;
+    private final LongAdder requestsFailed;
+    private final LongAdder requestsRejected;
+    private final LongAdder requestsTimedOut;
+    private final LongAdder schemaCacheHits;
+    private final LongAdder generationNanos;
+    private final LongAdder generationsFinished;
+    private final AtomicInteger activeGenerations;
+    private HttpServer server;
+
+    public GenerationServer(GeneratorSettings settings, int port, int maxConcurrentRequests, long requestTimeoutMillis) {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("Concurrent requests must be positive: " + maxConcurrentRequests);
+        }
+        this.settings = settings;
+        this.schemaCache = new SchemaCache(settings.getSchemaCacheDirectory());
+        this.classGenerators = new ConcurrentHashMap<>();
+        this.port = port;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.generationSlots = new Semaphore(maxConcurrentRequests, true);
+        ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+        this.virtualThreads = virtualThreadExecutor != null;
+        this.requestExecutor = virtualThreads ? virtualThreadExecutor : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "generation-request");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.requestsTotal = new LongAdder();
+        this.requestsSucceeded = new LongAdder();
+        this.requestsFailed = new LongAdder();
+        this.requestsRejected = new LongAdder();
+        this.requestsTimedOut = new LongAdder();
+        this.schemaCacheHits = new LongAdder();
+        this.generationNanos = new LongAdder();
+        this.generationsFinished = new LongAdder();
+        this.activeGenerations = new AtomicInteger();
+    }
+
+    public void start() {
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        }
+        catch (IOException exception) {
+            throw new RuntimeException("Server was not started on port " + port + ": " + exception.getMessage());
+        }
+        server.createContext("/generate", this::handleGenerate);
+        server.createContext("/metrics", this::handleMetrics);
+        server.setExecutor(requestExecutor);
+        server.start();
+        System.out.println("Serving on http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+                + (virtualThreads ? " with virtual threads" : ""));
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        requestExecutor.shutdownNow();
+    }
+
+    private void handleGenerate(HttpExchange exchange) throws IOException {
+        try {
+            if (!isExactPath(exchange, "/generate")) {
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendText(exchange, 405, "Workbook must be posted");
+                return;
+            }
+            requestsTotal.increment();
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            String sheet = parameters.get("sheet");
+            String extension = workbookExtension(parameters.getOrDefault("name", "workbook.xlsx"));
+            boolean jar = "jar".equalsIgnoreCase(parameters.get("archive"));
+            if (sheet == null || extension == null) {
+                requestsFailed.increment();
+                sendText(exchange, 400, "Parameter 'sheet' is required and 'name' must end with .xlsx, .xls, .csv or .tsv");
+                return;
+            }
+            ClassGenerator classGenerator;
+            try {
+                classGenerator = classGenerator(parameters);
+            }
+            catch (IllegalArgumentException exception) {
+                requestsFailed.increment();
+                sendText(exchange, 400, exception.getMessage());
+                return;
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(requestTimeoutMillis);
+            if (!generationSlots.tryAcquire(requestTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                requestsRejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendText(exchange, 503, "All " + maxConcurrentRequests + " generation slots are busy");
+                return;
+            }
+            GenerationRequest request;
+            Future<RunMetrics> generation;
+            try {
+                request = new GenerationRequest(extension, jar ? ".jar" : ".zip");
+            }
+            catch (IOException | RuntimeException exception) {
+                generationSlots.release();
+                throw exception;
+            }
+            try {
+                Files.copy(exchange.getRequestBody(), request.workbookFile, StandardCopyOption.REPLACE_EXISTING);
+                generation = requestExecutor.submit(() -> generate(classGenerator, request, sheet));
+            }
+            catch (IOException | RuntimeException exception) {
+                generationSlots.release();
+                request.finish();
+                request.abandon();
+                throw exception;
+            }
+            try {
+                RunMetrics metrics = generation.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                requestsSucceeded.increment();
+                exchange.getResponseHeaders().set("Content-Type", jar ? "application/java-archive" : "application/zip");
+                exchange.getResponseHeaders().set("X-Classes-Created", String.valueOf(metrics.getClassesCreated()));
+                exchange.getResponseHeaders().set("X-Schema-Cache", metrics.isSchemaCacheHit() ? "hit" : "miss");
+                sendBytes(exchange, 200, Files.readAllBytes(request.archiveFile));
+            }
+            catch (TimeoutException exception) {
+                // Parsing does not react to interrupts, the generation ends on its own and frees its slot then
+                requestsTimedOut.increment();
+                sendText(exchange, 504, "Generation did not finish in " + requestTimeoutMillis + " ms");
+            }
+            catch (ExecutionException exception) {
+                requestsFailed.increment();
+                Throwable cause = exception.getCause();
+                sendText(exchange, 422, cause.getMessage() == null ? cause.toString() : cause.getMessage());
+            }
+            finally {
+                request.abandon();
+            }
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            sendText(exchange, 503, "Server is stopping");
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    // Runs under a generation slot, which is released when the generation really ends, even after a timeout
+    private RunMetrics generate(ClassGenerator classGenerator, GenerationRequest request, String sheet) {
+        long start = System.nanoTime();
+        activeGenerations.incrementAndGet();
+        RunMetrics metrics = new RunMetrics();
+        try {
+            classGenerator.generateArchive(request.workbookFile.toString(), sheet, request.archiveFile.toString(), metrics);
+            if (metrics.isSchemaCacheHit()) {
+                schemaCacheHits.increment();
+            }
+            return metrics;
+        }
+        finally {
+            generationNanos.add(System.nanoTime() - start);
+            generationsFinished.increment();
+            activeGenerations.decrementAndGet();
+            generationSlots.release();
+            request.finish();
+        }
+    }
+
+    // Rendering options of the request over those of the server. Every combination keeps its own settings and
+    // compiled dictionaries; the schema cache holds parses only, which do not depend on these options, so
+    // all combinations share it
+    private ClassGenerator classGenerator(Map<String, String> parameters) {
+        boolean mergeIdenticalClasses = flag(parameters, "dedup", settings.isMergeIdenticalClasses());
+        boolean xmlMarshallers = flag(parameters, "stax", settings.isXmlMarshallers());
+        PrimitiveCollections primitiveCollections = settings.getPrimitiveCollections();
+        String primitives = parameters.get("primitives");
+        if (primitives != null) {
+            primitiveCollections = PrimitiveCollections.forOption(primitives);
+            if (primitiveCollections == null) {
+                throw new IllegalArgumentException("Parameter 'primitives' must be one of boxed, array, list");
+            }
+        }
+        String key = mergeIdenticalClasses + "," + xmlMarshallers + "," + primitiveCollections;
+        PrimitiveCollections requestPrimitiveCollections = primitiveCollections;
+        return classGenerators.computeIfAbsent(key, ignored -> {
+            GeneratorSettings requestSettings = settings.copy();
+            requestSettings.setMergeIdenticalClasses(mergeIdenticalClasses);
+            requestSettings.setXmlMarshallers(xmlMarshallers);
+            requestSettings.setPrimitiveCollections(requestPrimitiveCollections);
+            return new ClassGenerator(requestSettings, schemaCache);
+        });
+    }
+
+    private static boolean flag(Map<String, String> parameters, String name, boolean defaultValue) {
+        String value = parameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            return Boolean.parseBoolean(value);
+        }
+        throw new IllegalArgumentException("Parameter '" + name + "' must be true or false");
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            if (!isExactPath(exchange, "/metrics")) {
+                return;
+            }
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            long finished = generationsFinished.sum();
+            metrics.put("requestsTotal", requestsTotal.sum());
+            metrics.put("requestsSucceeded", requestsSucceeded.sum());
+            metrics.put("requestsFailed", requestsFailed.sum());
+            metrics.put("requestsRejected", requestsRejected.sum());
+            metrics.put("requestsTimedOut", requestsTimedOut.sum());
+            metrics.put("activeGenerations", activeGenerations.get());
+            metrics.put("maxConcurrentRequests", maxConcurrentRequests);
+            metrics.put("requestTimeoutMillis", requestTimeoutMillis);
+            metrics.put("schemaCacheHits", schemaCacheHits.sum());
+            metrics.put("averageGenerationMillis", finished == 0 ? 0 : generationNanos.sum() / finished / 1_000_000);
+            metrics.put("virtualThreads", virtualThreads);
+            String json = new GsonBuilder().setPrettyPrinting().create().toJson(metrics);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            sendBytes(exchange, 200, json.getBytes(StandardCharsets.UTF_8));
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    // A context also receives its sub-paths, which are answered with 404
+    private static boolean isExactPath(HttpExchange exchange, String path) throws IOException {
+        if (path.equals(exchange.getRequestURI().getPath())) {
+            return true;
+        }
+        sendText(exchange, 404, "No such path: " + exchange.getRequestURI().getPath());
+        return false;
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static String workbookExtension(String name) {
+        for (String extension : WORKBOOK_EXTENSIONS) {
+            if (name.toLowerCase().endsWith(extension)) {
+                return extension;
+            }
+        }
+        return null;
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        sendBytes(exchange, status, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendBytes(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        }
+        catch (IOException exception) {
+            System.err.println("Temporary file '" + file + "' was not deleted : " + exception.getMessage());
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() on JDK 21 and later, null on older runtimes
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        }
+        catch (ReflectiveOperationException exception) {
+            return null;
+        }
+    }
+
+    // Temporary files of one request, deleted by whichever of the handler and the generation ends last
+    private static class GenerationRequest {
+        private final Path workbookFile;
+        private final Path archiveFile;
+        private boolean finished;
+        private boolean abandoned;
+
+        GenerationRequest(String workbookExtension, String archiveExtension) throws IOException {
+            this.workbookFile = Files.createTempFile("xml-to-class-", workbookExtension);
+            this.archiveFile = Files.createTempFile("xml-to-class-", archiveExtension);
+        }
+
+        synchronized void finish() {
+            finished = true;
+            deleteQuietly(workbookFile);
+            if (abandoned) {
+                deleteQuietly(archiveFile);
+            }
+        }
+
+        synchronized void abandon() {
+            abandoned = true;
+            if (finished) {
+                deleteQuietly(archiveFile);
+            }
+        }
+    }
+}
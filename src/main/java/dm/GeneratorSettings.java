@@ -0,0 +1,235 @@
+package dm;
+
+import dm.creators.PrimitiveCollections;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class GeneratorSettings {
+    private Map<String, String> nameReplacementDict = new HashMap<>();
+    private Map<String, String> typeReplacementDict = new HashMap<>();
+    private Map<String, String> importsDict = new HashMap<>();
+    private int fieldNameScopeSize = 9;
+    private String columnHeaderTemplateWithFieldType = "Тип";
+    private String columnHeaderTemplateWithFieldMultiplicity = "Обязательность и кратность";
+    private String validVariableNamePattern = "^[a-zA-ZсС][a-zA-Z0-9_&сС]*";
+    private int parallelism = 1;
+    private boolean streamingInput;
+    private boolean asyncOutput;
+    private boolean incremental;
+    private boolean pruneStale;
+    private int progressIntervalSeconds;
+    private String compiledJarPath;
+    private String schemaCacheDirectory;
+    private String outputArchivePath;
+    private boolean mergeIdenticalClasses;
+    private boolean xmlMarshallers;
+    private PrimitiveCollections primitiveCollections = PrimitiveCollections.BOXED;
+    private boolean printClasses;
+    private String classModelPath;
+    private boolean verbose;
+
+    public Map<String, String> getNameReplacementDict() {
+        return nameReplacementDict;
+    }
+
+    public void setNameReplacementDict(Map<String, String> nameReplacementDict) {
+        this.nameReplacementDict = nameReplacementDict;
+    }
+
+    public Map<String, String> getTypeReplacementDict() {
+        return typeReplacementDict;
+    }
+
+    public void setTypeReplacementDict(Map<String, String> typeReplacementDict) {
+        this.typeReplacementDict = typeReplacementDict;
+    }
+
+    public Map<String, String> getImportsDict() {
+        return importsDict;
+    }
+
+    public void setImportsDict(Map<String, String> importsDict) {
+        this.importsDict = importsDict;
+    }
+
+    public int getFieldNameScopeSize() {
+        return fieldNameScopeSize;
+    }
+
+    public void setFieldNameScopeSize(int fieldNameScopeSize) {
+        this.fieldNameScopeSize = fieldNameScopeSize;
+    }
+
+    public String getColumnHeaderTemplateWithFieldType() {
+        return columnHeaderTemplateWithFieldType;
+    }
+
+    public void setColumnHeaderTemplateWithFieldType(String columnHeaderTemplateWithFieldType) {
+        this.columnHeaderTemplateWithFieldType = columnHeaderTemplateWithFieldType;
+    }
+
+    public String getColumnHeaderTemplateWithFieldMultiplicity() {
+        return columnHeaderTemplateWithFieldMultiplicity;
+    }
+
+    public void setColumnHeaderTemplateWithFieldMultiplicity(String columnHeaderTemplateWithFieldMultiplicity) {
+        this.columnHeaderTemplateWithFieldMultiplicity = columnHeaderTemplateWithFieldMultiplicity;
+    }
+
+    public String getValidVariableNamePattern() {
+        return validVariableNamePattern;
+    }
+
+    public void setValidVariableNamePattern(String validVariableNamePattern) {
+        this.validVariableNamePattern = validVariableNamePattern;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public boolean isStreamingInput() {
+        return streamingInput;
+    }
+
+    public void setStreamingInput(boolean streamingInput) {
+        this.streamingInput = streamingInput;
+    }
+
+    public boolean isAsyncOutput() {
+        return asyncOutput;
+    }
+
+    public void setAsyncOutput(boolean asyncOutput) {
+        this.asyncOutput = asyncOutput;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public boolean isPruneStale() {
+        return pruneStale;
+    }
+
+    public void setPruneStale(boolean pruneStale) {
+        this.pruneStale = pruneStale;
+    }
+
+    public int getProgressIntervalSeconds() {
+        return progressIntervalSeconds;
+    }
+
+    public void setProgressIntervalSeconds(int progressIntervalSeconds) {
+        this.progressIntervalSeconds = progressIntervalSeconds;
+    }
+
+    public String getCompiledJarPath() {
+        return compiledJarPath;
+    }
+
+    public void setCompiledJarPath(String compiledJarPath) {
+        this.compiledJarPath = compiledJarPath;
+    }
+
+    public String getSchemaCacheDirectory() {
+        return schemaCacheDirectory;
+    }
+
+    public void setSchemaCacheDirectory(String schemaCacheDirectory) {
+        this.schemaCacheDirectory = schemaCacheDirectory;
+    }
+
+    public String getOutputArchivePath() {
+        return outputArchivePath;
+    }
+
+    public void setOutputArchivePath(String outputArchivePath) {
+        this.outputArchivePath = outputArchivePath;
+    }
+
+    public boolean isMergeIdenticalClasses() {
+        return mergeIdenticalClasses;
+    }
+
+    public void setMergeIdenticalClasses(boolean mergeIdenticalClasses) {
+        this.mergeIdenticalClasses = mergeIdenticalClasses;
+    }
+
+    public boolean isXmlMarshallers() {
+        return xmlMarshallers;
+    }
+
+    public void setXmlMarshallers(boolean xmlMarshallers) {
+        this.xmlMarshallers = xmlMarshallers;
+    }
+
+    public PrimitiveCollections getPrimitiveCollections() {
+        return primitiveCollections;
+    }
+
+    public void setPrimitiveCollections(PrimitiveCollections primitiveCollections) {
+        this.primitiveCollections = primitiveCollections;
+    }
+
+    public boolean isPrintClasses() {
+        return printClasses;
+    }
+
+    public void setPrintClasses(boolean printClasses) {
+        this.printClasses = printClasses;
+    }
+
+    public String getClassModelPath() {
+        return classModelPath;
+    }
+
+    public void setClassModelPath(String classModelPath) {
+        this.classModelPath = classModelPath;
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    // Dictionaries are shared with the copy, they are not changed after loading
+    public GeneratorSettings copy() {
+        GeneratorSettings copy = new GeneratorSettings();
+        copy.nameReplacementDict = nameReplacementDict;
+        copy.typeReplacementDict = typeReplacementDict;
+        copy.importsDict = importsDict;
+        copy.fieldNameScopeSize = fieldNameScopeSize;
+        copy.columnHeaderTemplateWithFieldType = columnHeaderTemplateWithFieldType;
+        copy.columnHeaderTemplateWithFieldMultiplicity = columnHeaderTemplateWithFieldMultiplicity;
+        copy.validVariableNamePattern = validVariableNamePattern;
+        copy.parallelism = parallelism;
+        copy.streamingInput = streamingInput;
+        copy.asyncOutput = asyncOutput;
+        copy.incremental = incremental;
+        copy.pruneStale = pruneStale;
+        copy.progressIntervalSeconds = progressIntervalSeconds;
+        copy.compiledJarPath = compiledJarPath;
+        copy.schemaCacheDirectory = schemaCacheDirectory;
+        copy.outputArchivePath = outputArchivePath;
+        copy.mergeIdenticalClasses = mergeIdenticalClasses;
+        copy.xmlMarshallers = xmlMarshallers;
+        copy.primitiveCollections = primitiveCollections;
+        copy.printClasses = printClasses;
+        copy.classModelPath = classModelPath;
+        copy.verbose = verbose;
+        return copy;
+    }
+}
@@ -0,0 +1,90 @@
+package dm;
+
+import dm.creators.ClassCreator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything a parse hands on: the created classes with their ordered fields and the
+ * warnings, each in the order the parser produced them. Replaying it into a class creator
+ * gives the same classes as parsing the workbook again.
+ */
+public class ParsedSchema {
+    private final List<ParsedClass> classes;
+    private final List<ParsedWarning> warnings;
+
+    public ParsedSchema() {
+        this.classes = new ArrayList<>();
+        this.warnings = new ArrayList<>();
+    }
+
+    public List<ParsedClass> getClasses() {
+        return Collections.unmodifiableList(classes);
+    }
+
+    public List<ParsedWarning> getWarnings() {
+        return Collections.unmodifiableList(warnings);
+    }
+
+    void addClass(String className, List<FieldInfo> fields) {
+        classes.add(new ParsedClass(className, fields));
+    }
+
+    void addWarning(String sheetName, String emptyCellName, int rowNum) {
+        warnings.add(new ParsedWarning(sheetName, emptyCellName, rowNum));
+    }
+
+    public void replay(ClassCreator classCreator, RunMetrics metrics) {
+        for (ParsedWarning warning : warnings) {
+            metrics.recordWarning(warning.getSheetName(), warning.getEmptyCellName(), warning.getRowNum());
+        }
+        for (ParsedClass parsedClass : classes) {
+            classCreator.create(parsedClass.getClassName(), parsedClass.getFields());
+            metrics.recordClassCreated(parsedClass.getClassName());
+        }
+    }
+
+    public static class ParsedClass {
+        private final String className;
+        private final List<FieldInfo> fields;
+
+        ParsedClass(String className, List<FieldInfo> fields) {
+            this.className = className;
+            this.fields = fields;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public List<FieldInfo> getFields() {
+            return fields;
+        }
+    }
+
+    public static class ParsedWarning {
+        private final String sheetName;
+        private final String emptyCellName;
+        private final int rowNum;
+
+        ParsedWarning(String sheetName, String emptyCellName, int rowNum) {
+            this.sheetName = sheetName;
+            this.emptyCellName = emptyCellName;
+            this.rowNum = rowNum;
+        }
+
+        public String getSheetName() {
+            return sheetName;
+        }
+
+        public String getEmptyCellName() {
+            return emptyCellName;
+        }
+
+        public int getRowNum() {
+            return rowNum;
+        }
+    }
+}
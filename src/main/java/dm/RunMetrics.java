@@ -0,0 +1,258 @@
+package dm;
+
+import com.google.gson.GsonBuilder;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timers of one generation run. Updated from parsing threads and the class
+ * file writer; warnings are aggregated by sheet and cell instead of being printed one by one.
+ */
+public class RunMetrics {
+    private static final int REPORTED_WARNING_ROWS = 10;
+
+    private final long startNanos;
+    private final LongAdder workbookOpenNanos;
+    private final LongAdder rowsScanned;
+    private final LongAdder cellsNameChecked;
+    private final LongAdder classesCreated;
+    private final LongAdder classFilesWritten;
+    private final LongAdder classFilesUnchanged;
+    private final LongAdder bytesWritten;
+    private final AtomicInteger sheetsParsed;
+    private final AtomicInteger sheetsReused;
+    private final AtomicInteger maxRecursionDepth;
+    private final Map<String, SheetTiming> sheetTimings;
+    private final Map<String, WarningGroup> warnings;
+    private final Map<String, String> classMerges;
+    private volatile boolean verbose;
+    private volatile boolean schemaCacheHit;
+    private volatile long durationNanos;
+    private volatile String error;
+
+    public RunMetrics() {
+        this.startNanos = System.nanoTime();
+        this.workbookOpenNanos = new LongAdder();
+        this.rowsScanned = new LongAdder();
+        this.cellsNameChecked = new LongAdder();
+        this.classesCreated = new LongAdder();
+        this.classFilesWritten = new LongAdder();
+        this.classFilesUnchanged = new LongAdder();
+        this.bytesWritten = new LongAdder();
+        this.sheetsParsed = new AtomicInteger();
+        this.sheetsReused = new AtomicInteger();
+        this.maxRecursionDepth = new AtomicInteger();
+        this.sheetTimings = new ConcurrentHashMap<>();
+        this.warnings = new LinkedHashMap<>();
+        this.classMerges = new LinkedHashMap<>();
+    }
+
+    public void recordWorkbookOpen(long nanos) {
+        workbookOpenNanos.add(nanos);
+    }
+
+    public void recordSheetParse(String sheetName, long nanos, int rows) {
+        sheetsParsed.incrementAndGet();
+        rowsScanned.add(rows);
+        sheetTimings.put(sheetName, new SheetTiming(sheetName, nanos, rows));
+    }
+
+    public void recordSchemaCacheHit() {
+        schemaCacheHit = true;
+    }
+
+    public void recordSheetReuse() {
+        sheetsReused.incrementAndGet();
+    }
+
+    public void recordRecursionDepth(int depth) {
+        maxRecursionDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    // Every cell checked against the name pattern, whether the fast path or the regex decided it
+    public void recordNameCheck() {
+        cellsNameChecked.increment();
+    }
+
+    // Classes are listed one by one only in verbose mode, otherwise they are just counted
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    public void recordClassCreated(String className) {
+        classesCreated.increment();
+        if (verbose) {
+            System.out.println("Class '" + className + "' created");
+        }
+    }
+
+    public void recordClassFile(boolean written, int bytes) {
+        if (written) {
+            classFilesWritten.increment();
+            bytesWritten.add(bytes);
+        }
+        else {
+            classFilesUnchanged.increment();
+        }
+    }
+
+    public synchronized void recordClassMerge(String className, String canonicalClassName) {
+        classMerges.put(className, canonicalClassName);
+        if (verbose) {
+            System.out.println("Class '" + className + "' merged into identical '" + canonicalClassName + "'");
+        }
+    }
+
+    // Row number is -1 when the cell does not exist
+    public synchronized void recordWarning(String sheetName, String cellName, int rowNum) {
+        String key = sheetName + '\u0000' + cellName;
+        WarningGroup group = warnings.get(key);
+        if (group == null) {
+            group = new WarningGroup(sheetName, cellName);
+            warnings.put(key, group);
+        }
+        group.count++;
+        if (group.rows.size() < REPORTED_WARNING_ROWS) {
+            group.rows.add(rowNum);
+        }
+    }
+
+    public void finish(String error) {
+        this.durationNanos = System.nanoTime() - startNanos;
+        this.error = error;
+    }
+
+    public boolean isSchemaCacheHit() {
+        return schemaCacheHit;
+    }
+
+    public int getSheetsParsed() {
+        return sheetsParsed.get();
+    }
+
+    public int getSheetsReused() {
+        return sheetsReused.get();
+    }
+
+    public long getClassesCreated() {
+        return classesCreated.sum();
+    }
+
+    public synchronized int getClassesMerged() {
+        return classMerges.size();
+    }
+
+    public String getProgressLine() {
+        return "Progress: " + sheetsParsed.get() + " sheet(s) parsed, " + rowsScanned.sum() + " rows, "
+                + classesCreated.sum() + " classes, " + bytesWritten.sum() + " bytes written in "
+                + millis(System.nanoTime() - startNanos) + " ms";
+    }
+
+    public synchronized void printWarnings(PrintStream out) {
+        for (WarningGroup group : warnings.values()) {
+            StringBuilder line = new StringBuilder();
+            line.append("Warning! Cell '").append(group.cellName).append("' is empty in sheet '")
+                    .append(group.sheetName).append("' ").append(group.count).append(" time(s), rows ");
+            for (int i = 0; i < group.rows.size(); i++) {
+                line.append(i == 0 ? "" : ", ").append(group.rows.get(i) < 0 ? "null" : group.rows.get(i));
+            }
+            if (group.count > group.rows.size()) {
+                line.append(", ...");
+            }
+            out.println(line);
+        }
+    }
+
+    public synchronized Map<String, Object> toReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("succeeded", error == null);
+        report.put("error", error);
+        report.put("durationMillis", millis(durationNanos));
+        report.put("schemaCacheHit", schemaCacheHit);
+        report.put("workbookOpenMillis", millis(workbookOpenNanos.sum()));
+        report.put("sheetsParsed", sheetsParsed.get());
+        report.put("sheetsReused", sheetsReused.get());
+        report.put("maxRecursionDepth", maxRecursionDepth.get());
+        report.put("rowsScanned", rowsScanned.sum());
+        report.put("cellsNameChecked", cellsNameChecked.sum());
+        report.put("classesCreated", classesCreated.sum());
+        report.put("classesMerged", classMerges.size());
+        report.put("classFilesWritten", classFilesWritten.sum());
+        report.put("classFilesUnchanged", classFilesUnchanged.sum());
+        report.put("bytesWritten", bytesWritten.sum());
+        List<Map<String, Object>> sheets = new ArrayList<>();
+        for (SheetTiming timing : new TreeMap<>(sheetTimings).values()) {
+            Map<String, Object> sheet = new LinkedHashMap<>();
+            sheet.put("name", timing.sheetName);
+            sheet.put("parseMillis", millis(timing.nanos));
+            sheet.put("rows", timing.rows);
+            sheets.add(sheet);
+        }
+        report.put("sheets", sheets);
+        List<Map<String, Object>> warningGroups = new ArrayList<>();
+        for (WarningGroup group : warnings.values()) {
+            Map<String, Object> warning = new LinkedHashMap<>();
+            warning.put("sheet", group.sheetName);
+            warning.put("emptyCell", group.cellName);
+            warning.put("count", group.count);
+            warning.put("firstRows", group.rows);
+            warningGroups.add(warning);
+        }
+        report.put("warnings", warningGroups);
+        List<Map<String, Object>> merges = new ArrayList<>();
+        for (Map.Entry<String, String> entry : classMerges.entrySet()) {
+            Map<String, Object> merge = new LinkedHashMap<>();
+            merge.put("className", entry.getKey());
+            merge.put("mergedInto", entry.getValue());
+            merges.add(merge);
+        }
+        report.put("classMerges", merges);
+        return report;
+    }
+
+    public static void writeReport(Path path, Object report) {
+        try {
+            String json = new GsonBuilder().setPrettyPrinting().serializeNulls().create().toJson(report);
+            Files.write(path, json.getBytes(StandardCharsets.UTF_8));
+        }
+        catch (Exception exception) {
+            System.err.println("Report file '" + path + "' was not written : " + exception.getMessage());
+        }
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    private static class SheetTiming {
+        private final String sheetName;
+        private final long nanos;
+        private final int rows;
+
+        SheetTiming(String sheetName, long nanos, int rows) {
+            this.sheetName = sheetName;
+            this.nanos = nanos;
+            this.rows = rows;
+        }
+    }
+
+    private static class WarningGroup {
+        private final String sheetName;
+        private final String cellName;
+        private final List<Integer> rows;
+        private int count;
+
+        WarningGroup(String sheetName, String cellName) {
+            this.sheetName = sheetName;
+            this.cellName = cellName;
+            this.rows = new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package dm;
+
+import dm.creators.MultiplicityType;
+import dm.sources.CsvWorkbookSource;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Directory of parsed schemas in a compact binary file per key. The key is a hash of the
+ * workbook bytes, the sheet name and the parser settings; dictionaries are not part of it
+ * because they are applied when classes are rendered, so one cached schema serves any
+ * dictionaries and any class creator. Strings are written once in a table and referenced
+ * by index. A file of another format version or a damaged file is ignored and replaced.
+ * The most recently used schemas are also kept in memory; without a directory the cache
+ * lives in memory only.
+ */
+public class SchemaCache {
+    private static final int MAGIC = 0x58544353;
+    private static final int FORMAT_VERSION = 2;
+    private static final String FILE_EXTENSION = ".schema";
+    private static final MultiplicityType[] MULTIPLICITY_TYPES = MultiplicityType.values();
+    private static final int MEMORY_CAPACITY = 64;
+
+    private final Path cacheDirectory;
+    private final Map<String, ParsedSchema> recentSchemas;
+
+    public SchemaCache(String cacheDirectory) {
+        this.cacheDirectory = cacheDirectory == null ? null : Paths.get(cacheDirectory);
+        this.recentSchemas = new LinkedHashMap<String, ParsedSchema>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ParsedSchema> eldest) {
+                return size() > MEMORY_CAPACITY;
+            }
+        };
+    }
+
+    public String key(String excelFile, String nameSheet, GeneratorSettings settings) {
+        MessageDigest digest = newDigest();
+        try {
+            // A directory of CSV or TSV sheets is hashed file by file with the names, which are sheet names
+            boolean directory = Files.isDirectory(Paths.get(excelFile));
+            for (Path file : CsvWorkbookSource.listSheetFiles(Paths.get(excelFile))) {
+                if (directory) {
+                    digest.update(file.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+                }
+                try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+                    byte[] buffer = new byte[64 * 1024];
+                    while (in.read(buffer) >= 0) {
+                        // Reading updates the digest
+                    }
+                }
+            }
+        }
+        catch (IOException exception) {
+            throw new RuntimeException("Excel file '" + excelFile + "' was not read: " + exception.getMessage());
+        }
+        String parserSettings = FORMAT_VERSION + "\u0000" + nameSheet.toLowerCase()
+                + "\u0000" + settings.getFieldNameScopeSize()
+                + "\u0000" + settings.getColumnHeaderTemplateWithFieldType()
+                + "\u0000" + settings.getColumnHeaderTemplateWithFieldMultiplicity()
+                + "\u0000" + settings.getValidVariableNamePattern();
+        digest.update(parserSettings.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    // Null when there is no usable schema for the key
+    public ParsedSchema load(String key) {
+        synchronized (recentSchemas) {
+            ParsedSchema schema = recentSchemas.get(key);
+            if (schema != null) {
+                return schema;
+            }
+        }
+        if (cacheDirectory == null) {
+            return null;
+        }
+        ParsedSchema schema = readSchema(key);
+        if (schema != null) {
+            synchronized (recentSchemas) {
+                recentSchemas.put(key, schema);
+            }
+        }
+        return schema;
+    }
+
+    private ParsedSchema readSchema(String key) {
+        Path file = cacheDirectory.resolve(key + FILE_EXTENSION);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !key.equals(in.readUTF())) {
+                return null;
+            }
+            String[] strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readUTF();
+            }
+            ParsedSchema schema = new ParsedSchema();
+            int classCount = in.readInt();
+            for (int i = 0; i < classCount; i++) {
+                String className = strings[in.readInt()];
+                int fieldCount = in.readInt();
+                List<FieldInfo> fields = new ArrayList<>(fieldCount);
+                for (int j = 0; j < fieldCount; j++) {
+                    String name = strings[in.readInt()];
+                    String type = strings[in.readInt()];
+                    MultiplicityType multiplicityType = MULTIPLICITY_TYPES[in.readByte()];
+                    int declaredClass = in.readInt();
+                    fields.add(new FieldInfo(name, type, multiplicityType, declaredClass < 0 ? null : strings[declaredClass]));
+                }
+                schema.addClass(className, fields);
+            }
+            int warningCount = in.readInt();
+            for (int i = 0; i < warningCount; i++) {
+                String sheetName = strings[in.readInt()];
+                String emptyCellName = strings[in.readInt()];
+                schema.addWarning(sheetName, emptyCellName, in.readInt());
+            }
+            return schema;
+        }
+        catch (IOException | RuntimeException exception) {
+            System.err.println("Schema cache file '" + file + "' was not read : " + exception.getMessage());
+            return null;
+        }
+    }
+
+    public void store(String key, ParsedSchema schema) {
+        synchronized (recentSchemas) {
+            recentSchemas.put(key, schema);
+        }
+        if (cacheDirectory == null) {
+            return;
+        }
+        Path file = cacheDirectory.resolve(key + FILE_EXTENSION);
+        Path temporaryFile = null;
+        try {
+            Files.createDirectories(cacheDirectory);
+            temporaryFile = Files.createTempFile(cacheDirectory, key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                writeSchema(out, key, schema);
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException exception) {
+            System.err.println("Schema cache file '" + file + "' was not written : " + exception.getMessage());
+            if (temporaryFile != null) {
+                try {
+                    Files.deleteIfExists(temporaryFile);
+                }
+                catch (IOException ignored) {
+                    // Left for the next run to overwrite
+                }
+            }
+        }
+    }
+
+    private static void writeSchema(DataOutputStream out, String key, ParsedSchema schema) throws IOException {
+        Map<String, Integer> stringIndexes = new LinkedHashMap<>();
+        for (ParsedSchema.ParsedClass parsedClass : schema.getClasses()) {
+            addString(stringIndexes, parsedClass.getClassName());
+            for (FieldInfo field : parsedClass.getFields()) {
+                addString(stringIndexes, field.getName());
+                addString(stringIndexes, field.getType());
+                if (field.getDeclaredClass() != null) {
+                    addString(stringIndexes, field.getDeclaredClass());
+                }
+            }
+        }
+        for (ParsedSchema.ParsedWarning warning : schema.getWarnings()) {
+            addString(stringIndexes, warning.getSheetName());
+            addString(stringIndexes, warning.getEmptyCellName());
+        }
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(key);
+        out.writeInt(stringIndexes.size());
+        for (String string : stringIndexes.keySet()) {
+            out.writeUTF(string);
+        }
+        out.writeInt(schema.getClasses().size());
+        for (ParsedSchema.ParsedClass parsedClass : schema.getClasses()) {
+            out.writeInt(stringIndexes.get(parsedClass.getClassName()));
+            out.writeInt(parsedClass.getFields().size());
+            for (FieldInfo field : parsedClass.getFields()) {
+                out.writeInt(stringIndexes.get(field.getName()));
+                out.writeInt(stringIndexes.get(field.getType()));
+                out.writeByte(field.getMultiplicityType().ordinal());
+                out.writeInt(field.getDeclaredClass() == null ? -1 : stringIndexes.get(field.getDeclaredClass()));
+            }
+        }
+        out.writeInt(schema.getWarnings().size());
+        for (ParsedSchema.ParsedWarning warning : schema.getWarnings()) {
+            out.writeInt(stringIndexes.get(warning.getSheetName()));
+            out.writeInt(stringIndexes.get(warning.getEmptyCellName()));
+            out.writeInt(warning.getRowNum());
+        }
+    }
+
+    private static void addString(Map<String, Integer> stringIndexes, String string) {
+        stringIndexes.putIfAbsent(string, stringIndexes.size());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package dm;
+
+import java.util.*;
+
+/**
+ * Sheet-to-sheet references of a workbook, from hyperlinks and sheet name matches of the
+ * field types. Sheet names are case insensitive, sheets and references keep the order in
+ * which they were added.
+ */
+public class SheetGraph {
+    private final Map<String, String> sheetNames;
+    private final Map<String, Set<String>> references;
+
+    public SheetGraph() {
+        this.sheetNames = new LinkedHashMap<>();
+        this.references = new LinkedHashMap<>();
+    }
+
+    // False when the sheet is already in the graph
+    public boolean addSheet(String sheetName) {
+        String key = sheetName.toLowerCase();
+        if (sheetNames.containsKey(key)) {
+            return false;
+        }
+        sheetNames.put(key, sheetName);
+        references.put(key, new LinkedHashSet<>());
+        return true;
+    }
+
+    public void addReference(String fromSheetName, String toSheetName) {
+        references.get(fromSheetName.toLowerCase()).add(toSheetName.toLowerCase());
+    }
+
+    public int size() {
+        return sheetNames.size();
+    }
+
+    // Candidates no sheet references, then, in candidate order, those still not reachable from a chosen
+    // root, which happens only for candidates in cycles
+    public List<String> findRoots(List<String> candidateSheetNames) {
+        Set<String> referenced = new HashSet<>();
+        for (Set<String> targets : references.values()) {
+            referenced.addAll(targets);
+        }
+        Set<String> roots = new HashSet<>();
+        Set<String> reachable = new HashSet<>();
+        for (String candidate : candidateSheetNames) {
+            String key = candidate.toLowerCase();
+            if (!referenced.contains(key) && roots.add(key)) {
+                addReachable(key, reachable);
+            }
+        }
+        for (String candidate : candidateSheetNames) {
+            String key = candidate.toLowerCase();
+            if (!reachable.contains(key) && roots.add(key)) {
+                addReachable(key, reachable);
+            }
+        }
+        List<String> rootSheetNames = new ArrayList<>();
+        for (String candidate : candidateSheetNames) {
+            if (roots.contains(candidate.toLowerCase())) {
+                rootSheetNames.add(candidate);
+            }
+        }
+        return rootSheetNames;
+    }
+
+    private void addReachable(String key, Set<String> reachable) {
+        Deque<String> pending = new ArrayDeque<>();
+        pending.push(key);
+        while (!pending.isEmpty()) {
+            String next = pending.pop();
+            if (reachable.add(next) && references.containsKey(next)) {
+                for (String target : references.get(next)) {
+                    pending.push(target);
+                }
+            }
+        }
+    }
+
+    // One cycle per reference back to a sheet still being visited, found by an iterative depth-first search
+    // that indexes the sheets on the current path, so deep chains stay linear
+    public List<List<String>> findCycles() {
+        List<List<String>> cycles = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        for (String root : references.keySet()) {
+            if (!visited.add(root)) continue;
+            List<String> path = new ArrayList<>();
+            Map<String, Integer> pathIndexes = new HashMap<>();
+            Deque<Iterator<String>> iterators = new ArrayDeque<>();
+            path.add(root);
+            pathIndexes.put(root, 0);
+            iterators.push(references.get(root).iterator());
+            while (!iterators.isEmpty()) {
+                if (!iterators.peek().hasNext()) {
+                    iterators.pop();
+                    pathIndexes.remove(path.remove(path.size() - 1));
+                    continue;
+                }
+                String next = iterators.peek().next();
+                Integer onPath = pathIndexes.get(next);
+                if (onPath != null) {
+                    List<String> cycle = new ArrayList<>();
+                    for (String key : path.subList(onPath, path.size())) {
+                        cycle.add(sheetNames.get(key));
+                    }
+                    cycle.add(sheetNames.get(next));
+                    cycles.add(cycle);
+                }
+                else if (visited.add(next) && references.containsKey(next)) {
+                    pathIndexes.put(next, path.size());
+                    path.add(next);
+                    iterators.push(references.get(next).iterator());
+                }
+            }
+        }
+        return cycles;
+    }
+}
@@ -0,0 +1,106 @@
+package dm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of parsing one sheet on its own: the ordered warnings, class declarations
+ * and references to other sheets, replayed later in the order the rows were read.
+ */
+public class SheetModel {
+    private final String sheetName;
+    private final List<Step> steps;
+    private RuntimeException failure;
+
+    public SheetModel(String sheetName) {
+        this.sheetName = sheetName;
+        this.steps = new ArrayList<>();
+    }
+
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    void addWarning(String emptyCellName, int rowNum) {
+        steps.add(new Warning(emptyCellName, rowNum));
+    }
+
+    void addClassDeclaration(FieldInfo classInfo, List<FieldInfo> fields) {
+        steps.add(new ClassDeclaration(classInfo, fields));
+    }
+
+    void addSheetReference(String referencedSheetName, String typeName) {
+        steps.add(new SheetReference(referencedSheetName, typeName));
+    }
+
+    void fail(RuntimeException failure) {
+        this.failure = failure;
+    }
+
+    public interface Step {
+    }
+
+    public static class Warning implements Step {
+        private final String emptyCellName;
+        private final int rowNum;
+
+        Warning(String emptyCellName, int rowNum) {
+            this.emptyCellName = emptyCellName;
+            this.rowNum = rowNum;
+        }
+
+        public String getEmptyCellName() {
+            return emptyCellName;
+        }
+
+        // -1 when the row has no such cell
+        public int getRowNum() {
+            return rowNum;
+        }
+    }
+
+    public static class ClassDeclaration implements Step {
+        private final FieldInfo classInfo;
+        private final List<FieldInfo> fields;
+
+        ClassDeclaration(FieldInfo classInfo, List<FieldInfo> fields) {
+            this.classInfo = classInfo;
+            this.fields = fields;
+        }
+
+        public FieldInfo getClassInfo() {
+            return classInfo;
+        }
+
+        public List<FieldInfo> getFields() {
+            return fields;
+        }
+    }
+
+    public static class SheetReference implements Step {
+        private final String sheetName;
+        private final String typeName;
+
+        SheetReference(String sheetName, String typeName) {
+            this.sheetName = sheetName;
+            this.typeName = typeName;
+        }
+
+        public String getSheetName() {
+            return sheetName;
+        }
+
+        public String getTypeName() {
+            return typeName;
+        }
+    }
+}
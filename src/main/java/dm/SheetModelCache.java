@@ -0,0 +1,138 @@
+package dm;
+
+import dm.sources.CellSource;
+import dm.sources.RowSource;
+import dm.sources.SheetSource;
+import dm.sources.WorkbookSource;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps parsed sheet models between runs over successive versions of a workbook.
+ * A model depends only on the cells of its own sheet and on the sheet names of the
+ * workbook, so it is reused while the sheet fingerprint matches and the whole cache
+ * is dropped when sheets are added, removed or renamed. The cells are fingerprinted
+ * only when the sheet stamp of the workbook differs from the previous run's.
+ */
+public class SheetModelCache {
+    private static final char SEPARATOR = '\u0000';
+
+    private final Map<String, CachedModel> models;
+    private final Map<String, StampedFingerprint> fingerprints;
+    private final ThreadLocal<MessageDigest> digests;
+    private String sheetNames;
+
+    public SheetModelCache() {
+        this.models = new ConcurrentHashMap<>();
+        this.fingerprints = new ConcurrentHashMap<>();
+        this.digests = ThreadLocal.withInitial(SheetModelCache::newDigest);
+    }
+
+    public synchronized void beginRun(WorkbookSource workbook) {
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+            names.append(workbook.getSheetName(i)).append(SEPARATOR);
+        }
+        if (!names.toString().equals(sheetNames)) {
+            models.clear();
+            fingerprints.clear();
+            sheetNames = names.toString();
+        }
+    }
+
+    // The stamp may be null, then the cells are always read
+    public String fingerprint(SheetSource sheet, String stamp) {
+        String key = sheet.getSheetName().toLowerCase();
+        StampedFingerprint known = stamp == null ? null : fingerprints.get(key);
+        if (known != null && known.stamp.equals(stamp)) {
+            return known.fingerprint;
+        }
+        String fingerprint = fingerprint(sheet);
+        if (stamp != null) {
+            fingerprints.put(key, new StampedFingerprint(stamp, fingerprint));
+        }
+        return fingerprint;
+    }
+
+    private String fingerprint(SheetSource sheet) {
+        MessageDigest digest = digests.get();
+        digest.reset();
+        StringBuilder cellKey = new StringBuilder();
+        for (RowSource row : sheet) {
+            for (CellSource cell : row) {
+                cellKey.setLength(0);
+                cellKey.append(row.getRowNum()).append(SEPARATOR)
+                        .append(cell.getColumnIndex()).append(SEPARATOR)
+                        .append(cell.isStringType()).append(SEPARATOR)
+                        .append(readValue(cell)).append(SEPARATOR)
+                        .append(cell.getHyperlinkAddress()).append(SEPARATOR);
+                digest.update(cellKey.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    public SheetModel get(String sheetName, String fingerprint) {
+        CachedModel cached = models.get(sheetName.toLowerCase());
+        if (cached == null || !cached.fingerprint.equals(fingerprint)) {
+            return null;
+        }
+        return cached.model;
+    }
+
+    // Failed models are not kept, so a sheet that failed is parsed again on the next run
+    public void put(String sheetName, String fingerprint, SheetModel model) {
+        if (model.getFailure() == null) {
+            models.put(sheetName.toLowerCase(), new CachedModel(fingerprint, model));
+        }
+        else {
+            models.remove(sheetName.toLowerCase());
+        }
+    }
+
+    private static String readValue(CellSource cell) {
+        try {
+            return cell.getStringCellValue();
+        }
+        catch (RuntimeException exception) {
+            return null;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static class StampedFingerprint {
+        private final String stamp;
+        private final String fingerprint;
+
+        StampedFingerprint(String stamp, String fingerprint) {
+            this.stamp = stamp;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private static class CachedModel {
+        private final String fingerprint;
+        private final SheetModel model;
+
+        CachedModel(String fingerprint, SheetModel model) {
+            this.fingerprint = fingerprint;
+            this.model = model;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package dm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Canonical instances of field names and types, so every repeated spelling is kept once per run
+public class StringPool {
+    private final Map<String, String> strings = new ConcurrentHashMap<>();
+
+    public String intern(String str) {
+        String pooled = strings.putIfAbsent(str, str);
+        return pooled == null ? str : pooled;
+    }
+}
@@ -0,0 +1,75 @@
+package dm;
+
+import java.util.BitSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Whole-string match of the valid variable name pattern. Patterns of the usual shape
+ * "^[first chars][next chars]*" (optionally ending with "$"), where the classes hold only
+ * literal characters and ranges, are compiled into character tables and checked without
+ * the regex engine; any other pattern is matched with the regex.
+ */
+public class VariableNameMatcher {
+    private static final Pattern SIMPLE_PATTERN = Pattern.compile("\\^?\\[([^\\[\\]\\\\^]+)]\\[([^\\[\\]\\\\^]+)]\\*\\$?");
+
+    private final Pattern pattern;
+    private final BitSet firstChars;
+    private final BitSet nextChars;
+
+    public VariableNameMatcher(String validVariableNamePattern) {
+        this.pattern = Pattern.compile(validVariableNamePattern);
+        Matcher simple = SIMPLE_PATTERN.matcher(validVariableNamePattern);
+        BitSet first = null;
+        BitSet next = null;
+        if (simple.matches()) {
+            first = parseCharacterClass(simple.group(1));
+            next = parseCharacterClass(simple.group(2));
+        }
+        this.firstChars = next == null ? null : first;
+        this.nextChars = first == null ? null : next;
+    }
+
+    public boolean matches(String value) {
+        if (firstChars == null) {
+            return pattern.matcher(value).matches();
+        }
+        if (value.isEmpty() || !firstChars.get(value.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < value.length(); i++) {
+            if (!nextChars.get(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Literal characters and ranges only; null when the class needs the regex engine
+    private static BitSet parseCharacterClass(String characterClass) {
+        if (characterClass.contains("&&")) {
+            return null;
+        }
+        BitSet chars = new BitSet(Character.MAX_VALUE + 1);
+        int i = 0;
+        while (i < characterClass.length()) {
+            char from = characterClass.charAt(i);
+            if (Character.isSurrogate(from)) {
+                return null;
+            }
+            if (i + 2 < characterClass.length() && characterClass.charAt(i + 1) == '-') {
+                char to = characterClass.charAt(i + 2);
+                if (to < from || Character.isSurrogate(to)) {
+                    return null;
+                }
+                chars.set(from, to + 1);
+                i += 3;
+            }
+            else {
+                chars.set(from);
+                i++;
+            }
+        }
+        return chars;
+    }
+}
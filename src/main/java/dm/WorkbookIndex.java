@@ -0,0 +1,132 @@
+package dm;
+
+import dm.sources.CellSource;
+import dm.sources.RowSource;
+import dm.sources.SheetSource;
+import dm.sources.WorkbookSource;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class WorkbookIndex {
+    private static final char NAME_SEPARATOR = '\u0000';
+    private static final int NOT_FOUND = -1;
+
+    private final WorkbookSource workbook;
+    private final List<String> headerNames;
+    private final Map<String, Integer> sheetIndexByLowerCaseName;
+    private final String joinedLowerCaseNames;
+    private final int[] nameOffsets;
+    private final Map<String, Integer> sheetIndexByNamePart;
+    private final Map<String, Integer> sheetIndexByHyperlink;
+    private final Map<String, int[]> headerColumnsBySheet;
+
+    public WorkbookIndex(WorkbookSource workbook, String... headerNames) {
+        this.workbook = workbook;
+        this.headerNames = Arrays.asList(headerNames);
+        this.sheetIndexByLowerCaseName = new HashMap<>();
+        this.nameOffsets = new int[workbook.getNumberOfSheets()];
+        StringBuilder joinedNames = new StringBuilder();
+        for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+            String lowerCaseName = workbook.getSheetName(i).toLowerCase();
+            sheetIndexByLowerCaseName.putIfAbsent(lowerCaseName, i);
+            nameOffsets[i] = joinedNames.length();
+            joinedNames.append(lowerCaseName).append(NAME_SEPARATOR);
+        }
+        this.joinedLowerCaseNames = joinedNames.toString();
+        this.sheetIndexByNamePart = new ConcurrentHashMap<>();
+        this.sheetIndexByHyperlink = new ConcurrentHashMap<>();
+        this.headerColumnsBySheet = new ConcurrentHashMap<>();
+    }
+
+    public List<String> getSheetNames() {
+        List<String> sheetNames = new ArrayList<>(workbook.getNumberOfSheets());
+        for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+            sheetNames.add(workbook.getSheetName(i));
+        }
+        return sheetNames;
+    }
+
+    public SheetSource getSheet(String name) {
+        Integer index = sheetIndexByLowerCaseName.get(name.toLowerCase());
+        return index == null ? null : workbook.getSheetAt(index);
+    }
+
+    public String getSheetStamp(String name) {
+        Integer index = sheetIndexByLowerCaseName.get(name.toLowerCase());
+        return index == null ? null : workbook.getSheetStamp(index);
+    }
+
+    // First sheet, in workbook order, whose lower-cased name contains the lower-cased string
+    public SheetSource findSheetContaining(String str) {
+        Integer index = sheetIndexByNamePart.get(str);
+        if (index == null) {
+            index = NOT_FOUND;
+            String namePart = str.toLowerCase();
+            if (namePart.indexOf(NAME_SEPARATOR) < 0) {
+                int position = joinedLowerCaseNames.indexOf(namePart);
+                if (position >= 0) {
+                    index = sheetIndexAtOffset(position);
+                }
+            }
+            sheetIndexByNamePart.put(str, index);
+        }
+        return index == NOT_FOUND ? null : workbook.getSheetAt(index);
+    }
+
+    // Sheet addressed by a hyperlink such as "'Sheet name'!A1"
+    public SheetSource findSheetByHyperlink(String hyperlinkAddress) {
+        Integer index = sheetIndexByHyperlink.get(hyperlinkAddress);
+        if (index == null) {
+            String targetSheetName = hyperlinkAddress.split("!")[0].replace("'", "");
+            index = sheetIndexByLowerCaseName.get(targetSheetName.toLowerCase());
+            if (index == null) {
+                index = NOT_FOUND;
+            }
+            sheetIndexByHyperlink.put(hyperlinkAddress, index);
+        }
+        return index == NOT_FOUND ? null : workbook.getSheetAt(index);
+    }
+
+    // Column of the first cell, in row order, whose trimmed text equals the header name; -1 if there is none
+    public int getHeaderColumn(SheetSource sheet, String headerName) {
+        int headerIndex = headerNames.indexOf(headerName);
+        if (headerIndex < 0) {
+            throw new IllegalArgumentException("Column header '" + headerName + "' is not indexed");
+        }
+        String sheetKey = sheet.getSheetName().toLowerCase();
+        int[] headerColumns = headerColumnsBySheet.get(sheetKey);
+        if (headerColumns == null) {
+            headerColumns = findHeaderColumns(sheet);
+            headerColumnsBySheet.put(sheetKey, headerColumns);
+        }
+        return headerColumns[headerIndex];
+    }
+
+    private int[] findHeaderColumns(SheetSource sheet) {
+        int[] headerColumns = new int[headerNames.size()];
+        Arrays.fill(headerColumns, NOT_FOUND);
+        int found = 0;
+        for (RowSource row : sheet) {
+            for (CellSource cell : row) {
+                if (!cell.isStringType()) continue;
+                String value = cell.getStringCellValue().trim();
+                for (int i = 0; i < headerColumns.length; i++) {
+                    if (headerColumns[i] == NOT_FOUND && headerNames.get(i).equals(value)) {
+                        headerColumns[i] = cell.getColumnIndex();
+                        found++;
+                    }
+                }
+                if (found == headerColumns.length) {
+                    return headerColumns;
+                }
+            }
+        }
+        return headerColumns;
+    }
+
+    private int sheetIndexAtOffset(int position) {
+        int index = Arrays.binarySearch(nameOffsets, position);
+        return index >= 0 ? index : -index - 2;
+    }
+}
@@ -0,0 +1,88 @@
+package dm;
+
+import dm.sources.CsvWorkbookSource;
+
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Regenerates classes every time the workbook is saved, keeping the JVM, dictionaries
+ * and parsed sheet models warm between runs. Only sheets whose fingerprint changed are
+ * parsed again; class files are written incrementally, so unchanged classes stay untouched.
+ */
+public class WorkbookWatcher {
+    private static final long QUIET_PERIOD_MILLIS = 200;
+
+    private final ClassGenerator classGenerator;
+    private final Path workbookPath;
+    private final String nameSheet;
+    private final String outDir;
+    private final SheetModelCache sheetModelCache;
+
+    public WorkbookWatcher(ClassGenerator classGenerator, String excelFile, String nameSheet, String outDir) {
+        this.classGenerator = classGenerator;
+        this.workbookPath = Paths.get(excelFile).toAbsolutePath();
+        this.nameSheet = nameSheet;
+        this.outDir = outDir;
+        this.sheetModelCache = new SheetModelCache();
+    }
+
+    public void watch() {
+        regenerate();
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            Path watchedDirectory = Files.isDirectory(workbookPath) ? workbookPath : workbookPath.getParent();
+            watchedDirectory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            System.out.println("Watching '" + workbookPath + "', press Ctrl+C to stop");
+            while (true) {
+                if (!isWorkbookChanged(watchService.take())) continue;
+                // Editors save in several writes or through a temporary file, wait until they are done
+                WatchKey key;
+                while ((key = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    isWorkbookChanged(key);
+                }
+                regenerate();
+            }
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        catch (Exception exception) {
+            throw new RuntimeException("Excel file '" + workbookPath + "' is not watched: " + exception.getMessage());
+        }
+    }
+
+    private boolean isWorkbookChanged(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || isWorkbookFile((Path) event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    // Any CSV or TSV sheet of a directory workbook, otherwise the workbook file itself
+    private boolean isWorkbookFile(Path changedFile) {
+        if (Files.isDirectory(workbookPath)) {
+            return CsvWorkbookSource.isSheetFile(changedFile);
+        }
+        return workbookPath.getFileName().equals(changedFile);
+    }
+
+    private void regenerate() {
+        long start = System.nanoTime();
+        RunMetrics metrics = new RunMetrics();
+        try {
+            classGenerator.generate(workbookPath.toString(), nameSheet, outDir, sheetModelCache, metrics);
+            System.out.println("Regenerated in " + (System.nanoTime() - start) / 1_000_000 + " ms: "
+                    + metrics.getSheetsParsed() + " sheet(s) parsed, "
+                    + metrics.getSheetsReused() + " reused");
+        }
+        catch (RuntimeException exception) {
+            System.err.println("Excel file '" + workbookPath + "' was not regenerated: " + exception.getMessage());
+        }
+    }
+}
@@ -2,22 +2,33 @@ package dm;
 
 import dm.creators.ClassCreator;
 import dm.creators.MultiplicityType;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.apache.poi.ss.usermodel.*;
-import java.io.FileInputStream;
-import java.io.IOException;
+import dm.sources.CellSource;
+import dm.sources.RowSource;
+import dm.sources.SheetSource;
+import dm.sources.WorkbookSource;
+import dm.sources.WorkbookSources;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 public class XmlToClassesParser {
-    private final Workbook workbook;
+    private final WorkbookIndex workbookIndex;
     private final ClassCreator classCreator;
     private final int fieldNameScopeSize;
     private final String columnHeaderTemplateWithFieldType;
     private final String columnHeaderTemplateWithFieldMultiplicity;
-    private final Pattern validVariableNameRegexPattern;
+    private final VariableNameMatcher validVariableNameMatcher;
+    private final StringPool stringPool;
+    private final int parallelism;
     private final Set<String> parsedClasses;
+    private final Map<String, ForkJoinTask<SheetModel>> sheetModels;
+    private final SheetModelCache sheetModelCache;
+    private final RunMetrics metrics;
+    private volatile ForkJoinPool pool;
+    private ParsedSchema parsedSchema;
     //private final Map<String, String > replacingEmptyTypeDict;
 
     public XmlToClassesParser(String excelFilePath,
@@ -26,102 +37,387 @@ public class XmlToClassesParser {
                               String columnHeaderTemplateWithFieldType,
                               String columnHeaderTemplateWithFieldMultiplicity,
                               String validVariableNamePattern) {
-        this.workbook = openWorkbook(excelFilePath);
+        this(WorkbookSources.open(excelFilePath, false),
+                classCreator,
+                fieldNameScopeSize,
+                columnHeaderTemplateWithFieldType,
+                columnHeaderTemplateWithFieldMultiplicity,
+                validVariableNamePattern,
+                1);
+    }
+
+    public XmlToClassesParser(WorkbookSource workbook,
+                              ClassCreator classCreator,
+                              int fieldNameScopeSize,
+                              String columnHeaderTemplateWithFieldType,
+                              String columnHeaderTemplateWithFieldMultiplicity,
+                              String validVariableNamePattern,
+                              int parallelism) {
+        this(workbook,
+                classCreator,
+                fieldNameScopeSize,
+                columnHeaderTemplateWithFieldType,
+                columnHeaderTemplateWithFieldMultiplicity,
+                validVariableNamePattern,
+                parallelism,
+                null,
+                new RunMetrics());
+    }
+
+    public XmlToClassesParser(WorkbookSource workbook,
+                              ClassCreator classCreator,
+                              int fieldNameScopeSize,
+                              String columnHeaderTemplateWithFieldType,
+                              String columnHeaderTemplateWithFieldMultiplicity,
+                              String validVariableNamePattern,
+                              int parallelism,
+                              SheetModelCache sheetModelCache,
+                              RunMetrics metrics) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.workbookIndex = new WorkbookIndex(workbook,
+                columnHeaderTemplateWithFieldType,
+                columnHeaderTemplateWithFieldMultiplicity);
         this.classCreator = classCreator;
         this.fieldNameScopeSize = fieldNameScopeSize;
         this.columnHeaderTemplateWithFieldType = columnHeaderTemplateWithFieldType;
         this.columnHeaderTemplateWithFieldMultiplicity = columnHeaderTemplateWithFieldMultiplicity;
-        this.validVariableNameRegexPattern = Pattern.compile(validVariableNamePattern);
-        this.parsedClasses = new HashSet<>();
+        this.validVariableNameMatcher = new VariableNameMatcher(validVariableNamePattern);
+        this.stringPool = new StringPool();
+        this.parallelism = parallelism;
+        this.parsedClasses = ConcurrentHashMap.newKeySet();
+        this.sheetModels = new ConcurrentHashMap<>();
+        this.sheetModelCache = sheetModelCache;
+        this.metrics = metrics;
+        if (sheetModelCache != null) {
+            sheetModelCache.beginRun(workbook);
+        }
         //this.replacingEmptyTypeDict = new HashMap<>();
     }
 
     public void parse(String targetSheet) {
+        parse(targetSheet, null);
+    }
+
+    // Also records the created classes and warnings into the schema when it is given. The target is
+    // a sheet name, or sheet names and glob patterns separated by commas; every target sheet is
+    // parsed in one pass and a class shared between them is created once
+    public void parse(String targetSheet, ParsedSchema parsedSchema) {
+        this.parsedSchema = parsedSchema;
+        if (parallelism > 1) {
+            pool = new ForkJoinPool(parallelism);
+        }
         try {
-            Sheet sheet = workbook.getSheet(targetSheet);
-            parseSheet(sheet);
+            Set<String> replayedSheets = new HashSet<>();
+            for (String rootSheet : findRootSheets(targetSheet)) {
+                createClasses(rootSheet, replayedSheets);
+            }
         }
         catch (Exception exception) {
             throw new RuntimeException("Sheet '" + targetSheet + "' was not parsed: " + exception.getMessage());
         }
+        finally {
+            if (pool != null) {
+                shutdownPool(pool);
+                pool = null;
+            }
+            sheetModels.clear();
+            this.parsedSchema = null;
+        }
+    }
+
+    // Cancels the queued sheets and waits for those still being read, so the caller can close
+    // the workbook as soon as the parse returns, also after a failure
+    private static void shutdownPool(ForkJoinPool pool) {
+        pool.shutdownNow();
+        boolean interrupted = false;
+        while (!pool.isTerminated()) {
+            try {
+                pool.awaitTermination(1, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException exception) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Named sheets are roots as given; a pattern such as "Order*" or "*" matches the sheets having the
+    // header columns and keeps those that no other parsed sheet references. Only the targets and the
+    // sheets they reach are parsed, so a sheet referenced from an unmatched sheet is still kept, and
+    // "*" selects every root sheet
+    private List<String> findRootSheets(String targetSheet) {
+        Map<String, Boolean> targetSheets = new LinkedHashMap<>();
+        SheetSource namedSheet = workbookIndex.getSheet(targetSheet);
+        String[] targets = namedSheet != null ? new String[] {targetSheet} : targetSheet.split(",");
+        for (String target : targets) {
+            target = target.trim();
+            if (target.indexOf('*') >= 0 || target.indexOf('?') >= 0) {
+                int matches = 0;
+                for (String sheetName : workbookIndex.getSheetNames()) {
+                    if (matchesPattern(sheetName, target) && hasHeaderColumns(sheetName)) {
+                        targetSheets.putIfAbsent(sheetName, true);
+                        matches++;
+                    }
+                }
+                if (matches == 0) {
+                    throw new IllegalArgumentException("No sheet with field columns matches '" + target + "'");
+                }
+            }
+            else if (!target.isEmpty()) {
+                SheetSource sheet = workbookIndex.getSheet(target);
+                if (sheet == null) {
+                    throw new IllegalArgumentException("Sheet '" + target + "' not found");
+                }
+                targetSheets.put(sheet.getSheetName(), false);
+            }
+        }
+        SheetGraph graph = buildSheetGraph(new ArrayList<>(targetSheets.keySet()));
+        List<String> matchedSheets = new ArrayList<>();
+        for (Map.Entry<String, Boolean> entry : targetSheets.entrySet()) {
+            if (entry.getValue()) {
+                matchedSheets.add(entry.getKey());
+            }
+        }
+        Set<String> matchedRoots = new HashSet<>(graph.findRoots(matchedSheets));
+        List<String> rootSheets = new ArrayList<>();
+        for (Map.Entry<String, Boolean> entry : targetSheets.entrySet()) {
+            if (!entry.getValue() || matchedRoots.contains(entry.getKey())) {
+                rootSheets.add(entry.getKey());
+            }
+        }
+        if (targetSheets.size() > 1 || !matchedSheets.isEmpty()) {
+            System.out.println("Root sheets: " + String.join(", ", rootSheets));
+        }
+        return rootSheets;
+    }
+
+    private static boolean matchesPattern(String sheetName, String pattern) {
+        StringBuilder regex = new StringBuilder();
+        for (String part : pattern.split("(?=[*?])|(?<=[*?])")) {
+            regex.append(part.equals("*") ? ".*" : part.equals("?") ? "." : Pattern.quote(part));
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE
+                | Pattern.UNICODE_CASE).matcher(sheetName).matches();
+    }
+
+    // A sheet without the columns is not parsed, so it is released right away
+    private boolean hasHeaderColumns(String sheetName) {
+        SheetSource sheet = workbookIndex.getSheet(sheetName);
+        boolean hasHeaderColumns = workbookIndex.getHeaderColumn(sheet, columnHeaderTemplateWithFieldType) >= 0
+                && workbookIndex.getHeaderColumn(sheet, columnHeaderTemplateWithFieldMultiplicity) >= 0;
+        if (!hasHeaderColumns) {
+            sheet.release();
+        }
+        return hasHeaderColumns;
+    }
+
+    // Parses every sheet reachable from the targets once, following references with a work
+    // stack, and reports reference cycles before any class is created
+    private SheetGraph buildSheetGraph(List<String> targetSheets) {
+        SheetGraph graph = new SheetGraph();
+        Deque<String> pendingSheets = new ArrayDeque<>();
+        for (int i = targetSheets.size() - 1; i >= 0; i--) {
+            pendingSheets.push(targetSheets.get(i));
+        }
+        while (!pendingSheets.isEmpty()) {
+            String sheetName = pendingSheets.pop();
+            if (!graph.addSheet(sheetName)) continue;
+            List<SheetModel.Step> steps = getSheetModel(sheetName).getSteps();
+            for (int i = steps.size() - 1; i >= 0; i--) {
+                if (steps.get(i) instanceof SheetModel.SheetReference) {
+                    String referencedSheetName = ((SheetModel.SheetReference) steps.get(i)).getSheetName();
+                    graph.addReference(sheetName, referencedSheetName);
+                    pendingSheets.push(referencedSheetName);
+                }
+            }
+        }
+        for (List<String> cycle : graph.findCycles()) {
+            System.err.println("Warning! Sheets reference each other in a cycle: " + String.join(" -> ", cycle));
+        }
+        return graph;
+    }
+
+    // Replays sheet models depth first in row order on the calling thread, so classes are created
+    // in the same order and with the same deduplication whatever the parallelism. An explicit frame
+    // stack replaces recursion, and each sheet is replayed at most once, which also cuts cycles.
+    private void createClasses(String sheetName, Set<String> replayedSheets) {
+        if (!replayedSheets.add(sheetName.toLowerCase())) {
+            return;
+        }
+        Deque<ReplayFrame> frames = new ArrayDeque<>();
+        frames.push(new ReplayFrame(getSheetModel(sheetName)));
+        metrics.recordRecursionDepth(frames.size());
+        while (!frames.isEmpty()) {
+            ReplayFrame frame = frames.peek();
+            if (!frame.steps.hasNext()) {
+                frames.pop();
+                if (frame.model.getFailure() != null) {
+                    throw frame.model.getFailure();
+                }
+                continue;
+            }
+            SheetModel.Step step = frame.steps.next();
+            if (step instanceof SheetModel.Warning) {
+                SheetModel.Warning warning = (SheetModel.Warning) step;
+                metrics.recordWarning(frame.model.getSheetName(), warning.getEmptyCellName(), warning.getRowNum());
+                if (parsedSchema != null) {
+                    parsedSchema.addWarning(frame.model.getSheetName(), warning.getEmptyCellName(), warning.getRowNum());
+                }
+            }
+            else if (step instanceof SheetModel.ClassDeclaration) {
+                SheetModel.ClassDeclaration declaration = (SheetModel.ClassDeclaration) step;
+                createClass(declaration.getClassInfo(), declaration.getFields());
+            }
+            else if (step instanceof SheetModel.SheetReference) {
+                SheetModel.SheetReference reference = (SheetModel.SheetReference) step;
+                if (!parsedClasses.contains(reference.getTypeName())
+                        && replayedSheets.add(reference.getSheetName().toLowerCase())) {
+                    frames.push(new ReplayFrame(getSheetModel(reference.getSheetName())));
+                    metrics.recordRecursionDepth(frames.size());
+                }
+            }
+        }
+    }
+
+    private SheetModel getSheetModel(String sheetName) {
+        ForkJoinTask<SheetModel> task = scheduleSheet(sheetName);
+        return pool == null ? task.invoke() : task.join();
+    }
+
+    private ForkJoinTask<SheetModel> scheduleSheet(String sheetName) {
+        final ForkJoinPool currentPool = pool;
+        return sheetModels.computeIfAbsent(sheetName.toLowerCase(), key -> {
+            ForkJoinTask<SheetModel> task = ForkJoinTask.adapt(() -> parseSheet(sheetName));
+            if (currentPool != null) {
+                currentPool.execute(task);
+            }
+            return task;
+        });
+    }
+
+    private SheetModel parseSheet(String sheetName) {
+        SheetSource sheet = workbookIndex.getSheet(sheetName);
+        String fingerprint = null;
+        SheetModel model = null;
+        if (sheetModelCache != null && sheet != null) {
+            fingerprint = sheetModelCache.fingerprint(sheet, workbookIndex.getSheetStamp(sheetName));
+            model = sheetModelCache.get(sheetName, fingerprint);
+        }
+        if (model != null) {
+            metrics.recordSheetReuse();
+        }
+        else {
+            model = new SheetModel(sheetName);
+            long start = System.nanoTime();
+            int rows = 0;
+            try {
+                rows = parseSheet(sheet, model);
+            }
+            catch (RuntimeException exception) {
+                model.fail(exception);
+            }
+            metrics.recordSheetParse(sheetName, System.nanoTime() - start, rows);
+            if (fingerprint != null) {
+                sheetModelCache.put(sheetName, fingerprint, model);
+            }
+        }
+        if (sheet != null) {
+            sheet.release();
+        }
+        if (pool != null) {
+            for (SheetModel.Step step : model.getSteps()) {
+                if (step instanceof SheetModel.SheetReference) {
+                    scheduleSheet(((SheetModel.SheetReference) step).getSheetName());
+                }
+            }
+        }
+        return model;
     }
 
-    private void parseSheet(Sheet sheet) {
+    private int parseSheet(SheetSource sheet, SheetModel model) {
         int columnNumberOfFieldType = findColumnNumberByName(sheet, columnHeaderTemplateWithFieldType);
         int columnNumberOfFieldMultiplicity = findColumnNumberByName(sheet, columnHeaderTemplateWithFieldMultiplicity);
         Deque<LinkedList<FieldInfo>> nestingQueue = new LinkedList<>();
         nestingQueue.add(new LinkedList<>());
         int currentNestingLevel = -1;
-        for (Row currentRow : sheet){
-            for (Cell nameCell : currentRow) {
+        int rows = 0;
+        CellText nameText = new CellText();
+        CellText typeText = new CellText();
+        CellText multiplicityText = new CellText();
+        for (RowSource currentRow : sheet){
+            rows++;
+            CellSource typeCell = currentRow.getCell(columnNumberOfFieldType);
+            CellSource multiplicityCell = currentRow.getCell(columnNumberOfFieldMultiplicity);
+            typeText.reset(typeCell);
+            multiplicityText.reset(multiplicityCell);
+            for (CellSource nameCell : currentRow) {
                 if (nameCell.getColumnIndex() > fieldNameScopeSize) break;
-                Cell typeCell = currentRow.getCell(columnNumberOfFieldType);
-                Cell multiplicityCell = currentRow.getCell(columnNumberOfFieldMultiplicity);
-                if (isValidCell(nameCell) || (isValidCell(typeCell) && currentNestingLevel == -1)) {
+                nameText.reset(nameCell);
+                if (isValidCell(nameText) || (currentNestingLevel == -1 && isValidCell(typeText))) {
                     if (nameCell.getColumnIndex() > currentNestingLevel && currentNestingLevel != -1) {
                         nestingQueue.add(new LinkedList<>());
                     }
                     if (nameCell.getColumnIndex() < currentNestingLevel) {
-                        popAndCreateClasses(nestingQueue, currentNestingLevel - nameCell.getColumnIndex());
+                        popClasses(nestingQueue, currentNestingLevel - nameCell.getColumnIndex(), model);
                     }
                     currentNestingLevel = nameCell.getColumnIndex();
-                    nestingQueue.getLast().add(parseRow(nameCell, typeCell, multiplicityCell));
-                    Sheet sheetWithFieldClassDeclaration = findSheetWithClassDeclaration(typeCell);
+                    nestingQueue.getLast().add(parseRow(nameText, typeText, multiplicityText, model));
+                    SheetSource sheetWithFieldClassDeclaration = findSheetWithClassDeclaration(typeText);
                     if (sheetWithFieldClassDeclaration != null ) {
-                        parseSheet(sheetWithFieldClassDeclaration);
+                        model.addSheetReference(sheetWithFieldClassDeclaration.getSheetName(), typeText.get());
                     }
                     break;
                 }
             }
         }
-        popAndCreateClasses(nestingQueue, nestingQueue.size() - 1);
+        popClasses(nestingQueue, nestingQueue.size() - 1, model);
+        return rows;
     }
 
-    private void popAndCreateClasses(Deque<LinkedList<FieldInfo>> queue, int count) {
+    private void popClasses(Deque<LinkedList<FieldInfo>> queue, int count, SheetModel model) {
         for (int j = 0; j < count ; j++) {
             LinkedList<FieldInfo> classFields = queue.pollLast();
-            createClass(queue.getLast().getLast(), classFields);
+            FieldInfo classInfo = queue.getLast().removeLast().declaringClass();
+            queue.getLast().addLast(classInfo);
+            model.addClassDeclaration(classInfo, classFields);
         }
     }
 
     private void createClass(FieldInfo classInfo, List<FieldInfo> fields) {
-        String className = classInfo.getType();
-        if (className.trim().isEmpty() && !classInfo.getName().isEmpty()) {
-            className += Character.toUpperCase(classInfo.getName().charAt(0));
-            className += classInfo.getName().substring(1);
-        }
+        String className = classInfo.getDeclaredClass();
         if (parsedClasses.contains(className)) {
             return;
         }
         classCreator.create(className, fields);
         parsedClasses.add(className);
-        System.out.println("Class '" + className + "' created");
-    }
-
-    private int findColumnNumberByName(Sheet sheet, String name) {
-        Iterator<Row> rowIterator = sheet.rowIterator();
-        while (rowIterator.hasNext()) {
-            Row currentRow = rowIterator.next();
-            Iterator<Cell> cellIterator = currentRow.cellIterator();
-            while (cellIterator.hasNext()) {
-                Cell currentCell = cellIterator.next();
-                if (isStringTypeCell(currentCell) && currentCell.getStringCellValue().trim().equals(name)) {
-                    return currentCell.getColumnIndex();
-                }
-            }
+        if (parsedSchema != null) {
+            parsedSchema.addClass(className, fields);
+        }
+        metrics.recordClassCreated(className);
+    }
+
+    private int findColumnNumberByName(SheetSource sheet, String name) {
+        int columnNumber = workbookIndex.getHeaderColumn(sheet, name);
+        if (columnNumber >= 0) {
+            return columnNumber;
         }
         throw new RuntimeException("Column '" + name +"' with type not found in sheet " + "'" + sheet.getSheetName() + "'");
     }
 
-    private Sheet findSheetWithClassDeclaration(Cell classTypeCell) {
-        if (isEmptyCell(classTypeCell)) {
+    private SheetSource findSheetWithClassDeclaration(CellText classTypeText) {
+        if (isEmptyCell(classTypeText)) {
             return null;
         }
-        Sheet sheetWithClassDeclaration = getSheetAtCellHyperlink(classTypeCell);
+        CellSource classTypeCell = classTypeText.getCell();
+        SheetSource sheetWithClassDeclaration = getSheetAtCellHyperlink(classTypeCell);
         if (sheetWithClassDeclaration == null) {
-            sheetWithClassDeclaration = findSheetOf(classTypeCell.getStringCellValue());
+            sheetWithClassDeclaration = findSheetOf(classTypeText.get());
         }
-        if (classTypeCell.getSheet().equals(sheetWithClassDeclaration) || parsedClasses.contains(classTypeCell.getStringCellValue())) {
+        if (sheetWithClassDeclaration == null || isSameSheet(classTypeCell.getSheet(), sheetWithClassDeclaration)) {
             return null;
         }
         else {
@@ -129,75 +425,54 @@ public class XmlToClassesParser {
         }
     }
 
-    private Sheet getSheetAtCellHyperlink(Cell classTypeCell) {
-        Hyperlink hyperlink = classTypeCell.getHyperlink();
-        if (hyperlink == null) return null;
-        String targetSheetName = classTypeCell.getHyperlink().getAddress().split("!")[0].replace("'", "");
-        Sheet targetSheet = workbook.getSheet(targetSheetName);
+    private SheetSource getSheetAtCellHyperlink(CellSource classTypeCell) {
+        String hyperlinkAddress = classTypeCell.getHyperlinkAddress();
+        if (hyperlinkAddress == null) return null;
+        SheetSource targetSheet = workbookIndex.findSheetByHyperlink(hyperlinkAddress);
         if (targetSheet == null) return null;
-        if (targetSheet.equals(classTypeCell.getSheet())) return null;
+        if (isSameSheet(targetSheet, classTypeCell.getSheet())) return null;
         return targetSheet;
     }
 
-    private Sheet findSheetOf(String str) {
-        for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
-            String currentSheetName = workbook.getSheetName(i).toLowerCase();
-            if (currentSheetName.contains(str.toLowerCase())) {
-                return workbook.getSheet(currentSheetName);
-            }
-        }
-        return null;
+    private SheetSource findSheetOf(String str) {
+        return workbookIndex.findSheetContaining(str);
     }
 
-    private FieldInfo parseRow(Cell name, Cell type, Cell multiplicity) {
-        String fieldName = parseNameCell(name);
-        String fieldType = parseTypeCell(type);
-        MultiplicityType multiplicityType = parseMultiplicityCell(multiplicity);
+    private FieldInfo parseRow(CellText name, CellText type, CellText multiplicity, SheetModel model) {
+        String fieldName = parseNameCell(name, model);
+        String fieldType = parseTypeCell(type, model);
+        MultiplicityType multiplicityType = parseMultiplicityCell(multiplicity, model);
 //        if (fieldType.trim().isEmpty() && !fieldName.isEmpty()) {
 //            fieldType += Character.toUpperCase(fieldName.charAt(0));
 //            fieldType += fieldName.substring(1);
 //        }
-        return new FieldInfo(fieldName, fieldType, multiplicityType);
+        return new FieldInfo(stringPool.intern(fieldName), stringPool.intern(fieldType), multiplicityType);
     }
     
-    private String parseNameCell(Cell nameCell) {
-        if (isEmptyCell(nameCell)) {
-            System.err.println("Warning! Cell 'name' is empty in sheet '"
-                    + (nameCell == null ? "null" : nameCell.getSheet().getSheetName()) + "' row '"
-                    + (nameCell == null ? "null" : nameCell.getRow().getRowNum()));
+    private String parseNameCell(CellText nameText, SheetModel model) {
+        if (isEmptyCell(nameText)) {
+            model.addWarning("name", nameText.getRowNum());
             return "";
         }
-        return replaceRussianSymbolC(nameCell.getStringCellValue());
+        return normalizeRussianSymbols(nameText.get(), false);
     }
 
-    private String parseTypeCell(Cell typeCell) {
-        if (isEmptyCell(typeCell)) {
-            System.err.println("Warning! Cell 'type' is empty in sheet '"
-                    + (typeCell == null ? "null" : typeCell.getSheet().getSheetName())
-                    + "' row '" +  (typeCell == null ? "null" : typeCell.getRow().getRowNum()));
+    private String parseTypeCell(CellText typeText, SheetModel model) {
+        if (isEmptyCell(typeText)) {
+            model.addWarning("type", typeText.getRowNum());
             return "";
         }
         else {
-            String typeValue = "";
-            if (Character.isLowerCase(typeCell.getStringCellValue().charAt(0))) {
-                typeValue += Character.toUpperCase(typeCell.getStringCellValue().charAt(0));
-                typeValue += typeCell.getStringCellValue().substring(1);
-            }
-            else {
-                typeValue = typeCell.getStringCellValue();
-            }
-            return replaceRussianSymbolC(typeValue).trim();
+            return normalizeRussianSymbols(typeText.get(), true).trim();
         }
     }
 
-    private MultiplicityType parseMultiplicityCell(Cell multiplicityCell) {
-        if (isEmptyCell(multiplicityCell)) {
-            System.err.println("Warning! Cell 'multiplicity' is empty in sheet '"
-                    + (multiplicityCell == null ? "null" : multiplicityCell.getSheet().getSheetName()) + "' row '"
-                    + (multiplicityCell == null ? "null" : multiplicityCell.getRow().getRowNum()));
+    private MultiplicityType parseMultiplicityCell(CellText multiplicityText, SheetModel model) {
+        if (isEmptyCell(multiplicityText)) {
+            model.addWarning("multiplicity", multiplicityText.getRowNum());
             return MultiplicityType.ONE;
         }
-        if (multiplicityCell.getStringCellValue().contains("*")) {
+        if (multiplicityText.get().indexOf('*') >= 0) {
             return MultiplicityType.MANY;
         }
         else {
@@ -205,34 +480,96 @@ public class XmlToClassesParser {
         }
     }
 
-    private Workbook openWorkbook(String path) {
-        try {
-            if (path.endsWith(".xlsx")) return new XSSFWorkbook(new FileInputStream(path));
-            if (path.endsWith(".xls")) return new HSSFWorkbook(new FileInputStream(path));
-            else throw new IOException("File format does not match 'xls', 'xlsx'" );
-        }
-        catch (IOException exception) {
-            throw new RuntimeException("Excel file not opened: " + exception.getMessage());
+    // Replaces Cyrillic 'с' and 'С' with Latin letters and optionally capitalizes the first
+    // letter in one pass; the string itself is returned when nothing changes
+    private String normalizeRussianSymbols(String str, boolean capitalize) {
+        char[] chars = null;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            char replacement = c;
+            if (i == 0 && capitalize && Character.isLowerCase(c)) {
+                replacement = Character.toUpperCase(c);
+            }
+            if (replacement == 'с') {
+                replacement = 'c';
+            }
+            else if (replacement == 'С') {
+                replacement = 'C';
+            }
+            if (replacement != c) {
+                if (chars == null) {
+                    chars = str.toCharArray();
+                }
+                chars[i] = replacement;
+            }
         }
+        return chars == null ? str : new String(chars);
     }
 
-    private String replaceRussianSymbolC(String str) {
-        return str.replace('с', 'c').replace('С','C');
+    private boolean isValidCell(CellText cellText) {
+        return cellText.getCell() != null && isStringTypeCell(cellText.getCell()) && !isEmptyCell(cellText)
+                && isContainsValidContent(cellText.get());
     }
 
-    private boolean isValidCell(Cell cell) {
-        return cell != null && isStringTypeCell(cell) && !isEmptyCell(cell) && isContainsValidContent(cell);
+    private boolean isContainsValidContent(String value) {
+        metrics.recordNameCheck();
+        return validVariableNameMatcher.matches(value);
     }
 
-    private boolean isContainsValidContent(Cell cell) {
-        return validVariableNameRegexPattern.matcher(cell.getStringCellValue()).matches();
+    private boolean isStringTypeCell(CellSource cell) {
+        return cell.isStringType();
     }
 
-    private boolean isStringTypeCell(Cell cell) {
-        return cell.getCellType() == Cell.CELL_TYPE_STRING;
+    private boolean isSameSheet(SheetSource sheet, SheetSource otherSheet) {
+        return otherSheet != null && sheet.getSheetName().equalsIgnoreCase(otherSheet.getSheetName());
     }
 
-    private boolean isEmptyCell(Cell cell) {
-        return cell == null || cell.getStringCellValue().trim().isEmpty();
+    private boolean isEmptyCell(CellText cellText) {
+        if (cellText.getCell() == null) {
+            return true;
+        }
+        String value = cellText.get();
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class ReplayFrame {
+        private final SheetModel model;
+        private final Iterator<SheetModel.Step> steps;
+
+        ReplayFrame(SheetModel model) {
+            this.model = model;
+            this.steps = model.getSteps().iterator();
+        }
+    }
+
+    // Text of one cell, read from the source at most once however many checks need it
+    private static class CellText {
+        private CellSource cell;
+        private String value;
+
+        void reset(CellSource cell) {
+            this.cell = cell;
+            this.value = null;
+        }
+
+        CellSource getCell() {
+            return cell;
+        }
+
+        String get() {
+            if (value == null) {
+                value = cell.getStringCellValue();
+            }
+            return value;
+        }
+
+        int getRowNum() {
+            return cell == null ? -1 : cell.getRow().getRowNum();
+        }
     }
 }
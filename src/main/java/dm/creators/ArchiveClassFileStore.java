@@ -0,0 +1,108 @@
+package dm.creators;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams every class file into one zip archive, or a source jar when the name ends with
+ * ".jar", through a single sequential stream instead of creating a file per class.
+ * Entries keep the order classes are created in and carry a fixed time, so the same
+ * classes give the same archive. The archive is written next to its final path and
+ * replaces it only when the run completed without errors.
+ */
+public class ArchiveClassFileStore implements ClassFileStore {
+    // Fixed entry time keeps archives identical for identical content
+    static final long ENTRY_TIME = new GregorianCalendar(1980, Calendar.FEBRUARY, 1).getTimeInMillis();
+
+    private final Path archivePath;
+    private final Path baseDirectory;
+    private final Path temporaryPath;
+    private final ZipOutputStream archive;
+    private boolean runComplete;
+    private boolean failed;
+    private boolean closed;
+
+    // Entry names are the class file paths relative to the base directory
+    public ArchiveClassFileStore(Path archivePath, Path baseDirectory) {
+        this.archivePath = archivePath.toAbsolutePath();
+        this.baseDirectory = baseDirectory.toAbsolutePath();
+        this.temporaryPath = this.archivePath.resolveSibling(this.archivePath.getFileName() + ".tmp");
+        try {
+            this.archive = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath), 64 * 1024));
+            if (this.archivePath.getFileName().toString().toLowerCase().endsWith(".jar")) {
+                Manifest manifest = new Manifest();
+                manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+                archive.putNextEntry(newEntry(JarFile.MANIFEST_NAME));
+                manifest.write(archive);
+                archive.closeEntry();
+            }
+        }
+        catch (IOException exception) {
+            throw new RuntimeException("Archive '" + this.archivePath + "' was not created : " + exception.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized boolean store(Path filePath, ByteBuffer content) {
+        String entryName = baseDirectory.relativize(filePath.toAbsolutePath()).toString().replace('\\', '/');
+        try {
+            archive.putNextEntry(newEntry(entryName));
+            if (content.hasArray()) {
+                archive.write(content.array(), content.arrayOffset() + content.position(), content.remaining());
+            }
+            else {
+                byte[] bytes = new byte[content.remaining()];
+                content.duplicate().get(bytes);
+                archive.write(bytes);
+            }
+            archive.closeEntry();
+            return true;
+        }
+        catch (Exception exception) {
+            failed = true;
+            throw new RuntimeException("Class file '" + entryName + "' not added to archive '"
+                    + archivePath + "' : " + exception.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void markRunComplete() {
+        runComplete = true;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            archive.close();
+            if (runComplete && !failed) {
+                Files.move(temporaryPath, archivePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return;
+            }
+            Files.deleteIfExists(temporaryPath);
+        }
+        catch (IOException exception) {
+            throw new RuntimeException("Archive '" + archivePath + "' was not written : " + exception.getMessage());
+        }
+    }
+
+    private static ZipEntry newEntry(String name) {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(ENTRY_TIME);
+        return entry;
+    }
+}
@@ -0,0 +1,244 @@
+package dm.creators;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes class sources on the calling thread into pooled buffers and writes them
+ * from a dedicated I/O thread, so parsing only waits when the bounded queue is full.
+ * Failures are collected and reported together by {@link #close()}.
+ */
+public class AsyncClassFileWriter implements ClassFileWriter {
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    private static final PendingFile END_OF_QUEUE = new PendingFile(null, null);
+    private static final long QUEUE_POLL_MILLIS = 100;
+
+    private final Charset charset;
+    private final ClassFileStore classFileStore;
+    private final int batchSize;
+    private final BlockingQueue<PendingFile> queue;
+    private final ConcurrentLinkedQueue<ByteBuffer> bufferPool;
+    private final ThreadLocal<CharsetEncoder> encoders;
+    private final List<String> errors;
+    private final Thread ioThread;
+    private volatile String ioFailure;
+    private volatile boolean closed;
+
+    public AsyncClassFileWriter(int queueCapacity, int batchSize) {
+        this(new NewClassFileStore(), queueCapacity, batchSize);
+    }
+
+    public AsyncClassFileWriter(ClassFileStore classFileStore, int queueCapacity, int batchSize) {
+        this(Charset.defaultCharset(), classFileStore, queueCapacity, batchSize);
+    }
+
+    public AsyncClassFileWriter(Charset charset, ClassFileStore classFileStore, int queueCapacity, int batchSize) {
+        this.charset = charset;
+        this.classFileStore = classFileStore;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.bufferPool = new ConcurrentLinkedQueue<>();
+        this.encoders = ThreadLocal.withInitial(this::newEncoder);
+        this.errors = new ArrayList<>();
+        this.ioThread = new Thread(this::writeFiles, "class-file-writer");
+        this.ioThread.setDaemon(true);
+        this.ioThread.start();
+    }
+
+    @Override
+    public void write(Path filePath, CharSequence content) {
+        if (closed) {
+            throw new IllegalStateException("Class file writer is closed");
+        }
+        ByteBuffer buffer = encode(content);
+        enqueue(new PendingFile(filePath, buffer), "Class file '" + filePath.getFileName() + "' was not queued");
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        RuntimeException failure = null;
+        try {
+            enqueue(END_OF_QUEUE, "Class files were not flushed");
+            if (joinWriterThread()) {
+                throw new RuntimeException("Class files were not flushed: interrupted");
+            }
+            if (ioFailure != null) {
+                throw new RuntimeException("Class files were not flushed: " + ioFailure);
+            }
+            synchronized (errors) {
+                if (!errors.isEmpty()) {
+                    StringBuilder report = new StringBuilder();
+                    report.append(errors.size()).append(" class file(s) were not written:");
+                    for (String error : errors) {
+                        report.append(System.lineSeparator()).append("  ").append(error);
+                    }
+                    throw new RuntimeException(report.toString());
+                }
+            }
+        }
+        catch (RuntimeException exception) {
+            failure = exception;
+            throw exception;
+        }
+        finally {
+            closeStore(failure);
+        }
+    }
+
+    // The store is closed whatever happened, once no file is being written to it any more
+    private void closeStore(RuntimeException failure) {
+        if (ioThread.isAlive()) {
+            ioThread.interrupt();
+            joinWriterThread();
+        }
+        try {
+            classFileStore.close();
+        }
+        catch (RuntimeException exception) {
+            if (failure == null) {
+                throw exception;
+            }
+            failure.addSuppressed(exception);
+        }
+    }
+
+    // True when the calling thread was interrupted; the interrupt is passed on to the writer thread,
+    // which then ends after its current file, and restored once it has ended
+    private boolean joinWriterThread() {
+        boolean interrupted = false;
+        while (ioThread.isAlive()) {
+            try {
+                ioThread.join();
+            }
+            catch (InterruptedException exception) {
+                interrupted = true;
+                ioThread.interrupt();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return interrupted;
+    }
+
+    // Waits for queue space only while the I/O thread is alive to make it
+    private void enqueue(PendingFile file, String failureMessage) {
+        try {
+            while (!queue.offer(file, QUEUE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (!ioThread.isAlive()) {
+                    throw new RuntimeException(failureMessage + ": writer thread stopped"
+                            + (ioFailure == null ? "" : ": " + ioFailure));
+                }
+            }
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(failureMessage + ": interrupted");
+        }
+    }
+
+    private void writeFiles() {
+        try {
+            writeBatches();
+        }
+        catch (Throwable throwable) {
+            ioFailure = throwable.toString();
+            throw throwable;
+        }
+    }
+
+    private void writeBatches() {
+        List<PendingFile> batch = new ArrayList<>(batchSize);
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            }
+            catch (InterruptedException exception) {
+                ioFailure = "interrupted";
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            for (PendingFile file : batch) {
+                if (file == END_OF_QUEUE) {
+                    running = false;
+                    continue;
+                }
+                try {
+                    classFileStore.store(file.path, file.content);
+                }
+                catch (RuntimeException exception) {
+                    synchronized (errors) {
+                        errors.add(exception.getMessage());
+                    }
+                }
+                finally {
+                    file.content.clear();
+                    bufferPool.offer(file.content);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private ByteBuffer encode(CharSequence content) {
+        CharsetEncoder encoder = encoders.get().reset();
+        CharBuffer chars = CharBuffer.wrap(content);
+        int expectedSize = (int) (content.length() * encoder.averageBytesPerChar()) + 16;
+        ByteBuffer buffer = acquireBuffer(expectedSize);
+        while (true) {
+            CoderResult result = chars.hasRemaining() ? encoder.encode(chars, buffer, true) : CoderResult.UNDERFLOW;
+            if (result.isUnderflow()) {
+                result = encoder.flush(buffer);
+            }
+            if (result.isUnderflow()) {
+                break;
+            }
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private ByteBuffer acquireBuffer(int minCapacity) {
+        ByteBuffer buffer = bufferPool.poll();
+        if (buffer == null || buffer.capacity() < minCapacity) {
+            return ByteBuffer.allocate(Math.max(INITIAL_BUFFER_SIZE, minCapacity));
+        }
+        return buffer;
+    }
+
+    private CharsetEncoder newEncoder() {
+        return charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    private static class PendingFile {
+        private final Path path;
+        private final ByteBuffer content;
+
+        PendingFile(Path path, ByteBuffer content) {
+            this.path = path;
+            this.content = content;
+        }
+    }
+}
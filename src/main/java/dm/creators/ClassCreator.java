@@ -4,6 +4,11 @@ import dm.FieldInfo;
 
 import java.util.Collection;
 
-public interface ClassCreator {
+public interface ClassCreator extends AutoCloseable {
     void create(String classType, Collection<FieldInfo> fields);
+
+    // Completion barrier: returns once every created class has been fully written
+    @Override
+    default void close() {
+    }
 }
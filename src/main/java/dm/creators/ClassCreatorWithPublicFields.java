@@ -1,102 +1,86 @@
 package dm.creators;
 import dm.FieldInfo;
 
-import java.io.FileWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ClassCreatorWithPublicFields implements ClassCreator {
     private final Path outFilesPath;
-    private final Map<String, String> nameReplacementDict;
-    private final Map<String, String> typeReplacementDict;
-    private final Map<String, String> importsDict;
+    private final ClassRenderer classRenderer;
+    private final XmlMarshallerRenderer xmlMarshallerRenderer;
+    private final ClassFileWriter classFileWriter;
+    private final ThreadLocal<StringBuilder> renderBuffer;
+    private final Set<String> writtenPrimitiveLists;
 
     public ClassCreatorWithPublicFields(String outFilesPath,
                                         Map<String, String> nameReplacementDict,
                                         Map<String, String> typeReplacementDict,
                                         Map<String, String> importsDict) {
+        this(outFilesPath, nameReplacementDict, typeReplacementDict, importsDict, new SyncClassFileWriter());
+    }
+
+    public ClassCreatorWithPublicFields(String outFilesPath,
+                                        Map<String, String> nameReplacementDict,
+                                        Map<String, String> typeReplacementDict,
+                                        Map<String, String> importsDict,
+                                        ClassFileWriter classFileWriter) {
+        this(outFilesPath, new FieldDictionary(nameReplacementDict, typeReplacementDict, importsDict), classFileWriter);
+    }
+
+    public ClassCreatorWithPublicFields(String outFilesPath,
+                                        FieldDictionary fieldDictionary,
+                                        ClassFileWriter classFileWriter) {
+        this(outFilesPath, fieldDictionary, classFileWriter, false, PrimitiveCollections.BOXED);
+    }
+
+    // With XML marshallers every class gets a StAX companion class written next to it
+    public ClassCreatorWithPublicFields(String outFilesPath,
+                                        FieldDictionary fieldDictionary,
+                                        ClassFileWriter classFileWriter,
+                                        boolean xmlMarshallers,
+                                        PrimitiveCollections primitiveCollections) {
         this.outFilesPath = Paths.get(outFilesPath);
         if (!Files.exists(this.outFilesPath) || !Files.isDirectory(this.outFilesPath)) {
             throw new IllegalArgumentException("Output directory '\" + inDir + \"' does not exist");
         }
-        this.nameReplacementDict = nameReplacementDict;
-        this.typeReplacementDict = typeReplacementDict;
-        this.importsDict = importsDict;
+        this.classRenderer = new ClassRenderer(fieldDictionary, primitiveCollections);
+        this.xmlMarshallerRenderer = xmlMarshallers ? new XmlMarshallerRenderer(fieldDictionary, primitiveCollections) : null;
+        this.classFileWriter = classFileWriter;
+        this.renderBuffer = ThreadLocal.withInitial(StringBuilder::new);
+        this.writtenPrimitiveLists = ConcurrentHashMap.newKeySet();
     }
 
     @Override
     public void create(String classType, Collection<FieldInfo> fields) {
         Path filePath = outFilesPath.resolve(classType + ".java");
-        if (Files.exists(filePath)) {
-            throw new RuntimeException("'" + classType + ".java" + "' exist in directory '" + filePath.toAbsolutePath().toString() + "'");
+        StringBuilder content = renderBuffer.get();
+        content.setLength(0);
+        render(classType, fields, content);
+        classFileWriter.write(filePath, content);
+        if (xmlMarshallerRenderer != null) {
+            String marshallerName = XmlMarshallerRenderer.marshallerName(classType);
+            content.setLength(0);
+            xmlMarshallerRenderer.render(classType, fields, content);
+            classFileWriter.write(outFilesPath.resolve(marshallerName + ".java"), content);
         }
-        try {
-            Files.createFile(filePath).toFile();
-            FileWriter writer = new FileWriter(filePath.toFile());
-            Set<FieldInfo> replacedFields = new LinkedHashSet<>(replaceFieldsAccordingDicts(fields));
-            writer.write(createImporsStrings(replacedFields));
-            writer.write(System.lineSeparator());
-            writer.write("public class " + classType +" {");
-            writer.write(System.lineSeparator());
-            for (FieldInfo info : replacedFields) {
-                writer.write("\tpublic ");
-                if (info.getMultiplicityType() == MultiplicityType.ONE) {
-                    writer.write(info.getType() + " " + info.getName() + ";");
-                }
-                if (info.getMultiplicityType() == MultiplicityType.MANY) {
-                    writer.write("List<" + info.getType() + "> " + info.getName() + ";");
-                }
-                writer.write(System.lineSeparator());
+        for (String primitiveType : classRenderer.primitiveListTypes(fields)) {
+            if (writtenPrimitiveLists.add(primitiveType)) {
+                content.setLength(0);
+                PrimitiveCollections.renderList(primitiveType, content);
+                classFileWriter.write(outFilesPath.resolve(PrimitiveCollections.listClassName(primitiveType) + ".java"), content);
             }
-            writer.write("}");
-            writer.close();
-        }
-        catch (Exception exception) {
-            throw new RuntimeException("Class file '" + classType + ".java' not created in directory '"
-                    + filePath.toAbsolutePath().toString() + "' : " + exception.getMessage());
         }
     }
 
-    private Collection<FieldInfo> replaceFieldsAccordingDicts(Collection<FieldInfo> fields) {
-        List<FieldInfo> fieldsWithNewTypes = new ArrayList<>();
-        for (FieldInfo info : fields) {
-            String newName = info.getName();
-            String newType = info.getType();
-            if (nameReplacementDict.containsKey(info.getName())) {
-                newName = nameReplacementDict.get(info.getName());
-            }
-            if (typeReplacementDict.containsKey(info.getType())) {
-                newType = typeReplacementDict.get(info.getType());
-            }
-            fieldsWithNewTypes.add(new FieldInfo(
-                    newName,
-                    newType,
-                    info.getMultiplicityType()));
-        }
-        return fieldsWithNewTypes;
+    @Override
+    public void close() {
+        classFileWriter.close();
     }
 
-    private String createImporsStrings(Collection<FieldInfo> fields) {
-        StringBuilder imports = new StringBuilder();
-        for (FieldInfo info : fields) {
-            if (info.getMultiplicityType() == MultiplicityType.MANY) {
-                imports.append("import java.util.List;");
-                imports.append(System.lineSeparator());
-                break;
-            }
-        }
-        Set<String> addedImportsForTypes = new HashSet<>();
-        for (FieldInfo info : fields) {
-            if (importsDict.containsKey(info.getType()) && !addedImportsForTypes.contains(info.getType())) {
-                addedImportsForTypes.add(info.getType());
-                imports.append("import ");
-                imports.append(importsDict.get(info.getType()));
-                imports.append(";");
-                imports.append(System.lineSeparator());
-            }
-        }
-        return imports.toString();
+    public void render(String classType, Collection<FieldInfo> fields, StringBuilder content) {
+        classRenderer.render(classType, fields, content);
     }
 }
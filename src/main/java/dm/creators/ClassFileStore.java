@@ -0,0 +1,16 @@
+package dm.creators;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+public interface ClassFileStore {
+    // Returns false when the file already had this content and was left untouched
+    boolean store(Path filePath, ByteBuffer content);
+
+    // Called once every class of the run has been handed to the writer
+    default void markRunComplete() {
+    }
+
+    default void close() {
+    }
+}
@@ -0,0 +1,10 @@
+package dm.creators;
+
+import java.nio.file.Path;
+
+public interface ClassFileWriter {
+    void write(Path filePath, CharSequence content);
+
+    default void close() {
+    }
+}
@@ -0,0 +1,72 @@
+package dm.creators;
+
+import com.google.gson.GsonBuilder;
+import dm.FieldInfo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Collects the class model for documentation and writes it as one JSON file when closed:
+ * every class with its fields, each with the sheet name and type and the Java name and
+ * type after dictionary replacement. The file is written only for a run marked complete,
+ * so a failed parse leaves the previous model in place.
+ */
+public class ClassModelWriter implements ClassCreator {
+    private final Path modelPath;
+    private final FieldDictionary fieldDictionary;
+    private final List<Map<String, Object>> classes;
+    private volatile boolean runComplete;
+
+    public ClassModelWriter(Path modelPath, FieldDictionary fieldDictionary) {
+        this.modelPath = modelPath.toAbsolutePath();
+        this.fieldDictionary = fieldDictionary;
+        this.classes = new ArrayList<>();
+    }
+
+    @Override
+    public synchronized void create(String classType, Collection<FieldInfo> fields) {
+        List<Map<String, Object>> fieldModels = new ArrayList<>(fields.size());
+        for (FieldInfo info : fields) {
+            Map<String, Object> field = new LinkedHashMap<>();
+            field.put("name", info.getName());
+            field.put("javaName", fieldDictionary.resolveName(info.getName()));
+            field.put("type", info.getType());
+            field.put("javaType", fieldDictionary.resolveType(info.getType()).getType());
+            field.put("multiplicity", info.getMultiplicityType().name());
+            field.put("declaredClass", info.getDeclaredClass());
+            fieldModels.add(field);
+        }
+        Map<String, Object> classModel = new LinkedHashMap<>();
+        classModel.put("name", classType);
+        classModel.put("fields", fieldModels);
+        classes.add(classModel);
+    }
+
+    // Called once the parse succeeded, before the writer is closed
+    public void markRunComplete() {
+        runComplete = true;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!runComplete) {
+            return;
+        }
+        Map<String, Object> model = new LinkedHashMap<>();
+        model.put("classes", classes);
+        String json = new GsonBuilder().setPrettyPrinting().serializeNulls().disableHtmlEscaping().create().toJson(model);
+        Path temporaryPath = modelPath.resolveSibling(modelPath.getFileName() + ".tmp");
+        try {
+            Files.write(temporaryPath, json.getBytes(StandardCharsets.UTF_8));
+            Files.move(temporaryPath, modelPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException exception) {
+            throw new RuntimeException("Class model file '" + modelPath + "' was not written: " + exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package dm.creators;
+
+import dm.FieldInfo;
+
+import java.util.*;
+
+// Source of a class with public fields, after name, type and import replacement
+public class ClassRenderer {
+    private final FieldDictionary fieldDictionary;
+    private final PrimitiveCollections primitiveCollections;
+
+    public ClassRenderer(FieldDictionary fieldDictionary) {
+        this(fieldDictionary, PrimitiveCollections.BOXED);
+    }
+
+    public ClassRenderer(FieldDictionary fieldDictionary, PrimitiveCollections primitiveCollections) {
+        this.fieldDictionary = fieldDictionary;
+        this.primitiveCollections = primitiveCollections;
+    }
+
+    public void render(String classType, Collection<FieldInfo> fields, StringBuilder content) {
+        List<String> names = new ArrayList<>(fields.size());
+        List<FieldDictionary.ResolvedType> types = new ArrayList<>(fields.size());
+        List<MultiplicityType> multiplicities = new ArrayList<>(fields.size());
+        Set<String> addedNames = new HashSet<>();
+        boolean hasListField = false;
+        for (FieldInfo info : fields) {
+            String name = fieldDictionary.resolveName(info.getName());
+            if (!addedNames.add(name)) continue;
+            names.add(name);
+            types.add(fieldDictionary.resolveType(info.getType()));
+            multiplicities.add(info.getMultiplicityType());
+            hasListField |= info.getMultiplicityType() == MultiplicityType.MANY
+                    && primitiveCollections.isJavaList(types.get(types.size() - 1).getType());
+        }
+        appendImports(types, hasListField, content);
+        content.append(System.lineSeparator());
+        content.append("public class ").append(classType).append(" {");
+        content.append(System.lineSeparator());
+        for (int i = 0; i < names.size(); i++) {
+            content.append("\tpublic ");
+            if (multiplicities.get(i) == MultiplicityType.ONE) {
+                content.append(types.get(i).getType()).append(" ").append(names.get(i)).append(";");
+            }
+            if (multiplicities.get(i) == MultiplicityType.MANY) {
+                content.append(primitiveCollections.fieldType(types.get(i).getType())).append(" ").append(names.get(i)).append(";");
+            }
+            content.append(System.lineSeparator());
+        }
+        content.append("}");
+    }
+
+    // Generated primitive list classes the repeated fields are declared with
+    public Set<String> primitiveListTypes(Collection<FieldInfo> fields) {
+        Set<String> primitiveTypes = new TreeSet<>();
+        for (FieldInfo info : fields) {
+            String type = fieldDictionary.resolveType(info.getType()).getType();
+            if (info.getMultiplicityType() == MultiplicityType.MANY && primitiveCollections.listClass(type) != null) {
+                primitiveTypes.add(type);
+            }
+        }
+        return primitiveTypes;
+    }
+
+    private void appendImports(List<FieldDictionary.ResolvedType> types, boolean hasListField, StringBuilder imports) {
+        if (hasListField) {
+            imports.append("import java.util.List;");
+            imports.append(System.lineSeparator());
+        }
+        Set<String> addedImportsForTypes = new HashSet<>();
+        for (FieldDictionary.ResolvedType type : types) {
+            if (type.getImportName() != null && addedImportsForTypes.add(type.getType())) {
+                imports.append("import ");
+                imports.append(type.getImportName());
+                imports.append(";");
+                imports.append(System.lineSeparator());
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package dm.creators;
+
+import dm.FieldInfo;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hands every class to several class creators from one parse. Each sink runs on its own
+ * thread behind its own bounded queue, so a slow sink delays parsing only when its queue
+ * is full, and sinks see classes in creation order. A failed sink stops receiving classes
+ * while the others go on: a failure of a required sink stops the parse and is thrown by
+ * {@link #close()}, a failure of an optional one is only reported.
+ */
+public class FanOutClassCreator implements ClassCreator {
+    private static final PendingClass END_OF_QUEUE = new PendingClass(null, null);
+
+    private final int queueCapacity;
+    private final List<Sink> sinks;
+    private boolean closed;
+
+    public FanOutClassCreator(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        this.sinks = new ArrayList<>();
+    }
+
+    public synchronized FanOutClassCreator addSink(String name, ClassCreator classCreator, boolean required) {
+        if (closed) {
+            throw new IllegalStateException("Class creator is closed");
+        }
+        Sink sink = new Sink(name, classCreator, required, queueCapacity);
+        sinks.add(sink);
+        sink.thread.start();
+        return this;
+    }
+
+    @Override
+    public synchronized void create(String classType, Collection<FieldInfo> fields) {
+        if (closed) {
+            throw new IllegalStateException("Class creator is closed");
+        }
+        PendingClass pendingClass = new PendingClass(classType, Collections.unmodifiableList(new ArrayList<>(fields)));
+        for (Sink sink : sinks) {
+            if (sink.failure != null) {
+                if (sink.required) {
+                    throw new RuntimeException("Class sink '" + sink.name + "' failed: " + sink.failure);
+                }
+                continue;
+            }
+            sink.offer(pendingClass);
+        }
+    }
+
+    // Completion barrier of every sink; sinks are closed on their own threads
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Sink sink : sinks) {
+            sink.offer(END_OF_QUEUE);
+        }
+        List<String> requiredFailures = new ArrayList<>();
+        for (Sink sink : sinks) {
+            try {
+                sink.thread.join();
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Class sinks were not flushed: interrupted");
+            }
+            if (sink.failure == null) continue;
+            if (sink.required) {
+                requiredFailures.add(sink.name + ": " + sink.failure);
+            }
+            else {
+                System.err.println("Warning! Class sink '" + sink.name + "' failed: " + sink.failure);
+            }
+        }
+        if (!requiredFailures.isEmpty()) {
+            StringBuilder report = new StringBuilder();
+            report.append(requiredFailures.size()).append(" class sink(s) failed:");
+            for (String failure : requiredFailures) {
+                report.append(System.lineSeparator()).append("  ").append(failure);
+            }
+            throw new RuntimeException(report.toString());
+        }
+    }
+
+    private static class Sink {
+        private final String name;
+        private final ClassCreator classCreator;
+        private final boolean required;
+        private final BlockingQueue<PendingClass> queue;
+        private final Thread thread;
+        private volatile String failure;
+
+        Sink(String name, ClassCreator classCreator, boolean required, int queueCapacity) {
+            this.name = name;
+            this.classCreator = classCreator;
+            this.required = required;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.thread = new Thread(this::createClasses, "class-sink-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        // A failed sink drains its queue, so a producer waiting on it is released
+        void offer(PendingClass pendingClass) {
+            try {
+                queue.put(pendingClass);
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Class '" + pendingClass.classType + "' was not queued for sink '"
+                        + name + "': interrupted");
+            }
+        }
+
+        private void createClasses() {
+            while (true) {
+                PendingClass pendingClass;
+                try {
+                    pendingClass = queue.take();
+                }
+                catch (InterruptedException exception) {
+                    return;
+                }
+                if (pendingClass == END_OF_QUEUE) break;
+                if (failure != null) continue;
+                try {
+                    classCreator.create(pendingClass.classType, pendingClass.fields);
+                }
+                catch (RuntimeException exception) {
+                    failure = "class '" + pendingClass.classType + "' was not created: " + exception.getMessage();
+                }
+            }
+            try {
+                classCreator.close();
+            }
+            catch (RuntimeException exception) {
+                if (failure == null) {
+                    failure = exception.getMessage();
+                }
+            }
+        }
+    }
+
+    private static class PendingClass {
+        private final String classType;
+        private final List<FieldInfo> fields;
+
+        PendingClass(String classType, List<FieldInfo> fields) {
+            this.classType = classType;
+            this.fields = fields;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package dm.creators;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Name, type and import dictionaries compiled for lookups. Type keys are normalized when
+ * the dictionary is built (trimmed, case folded, Cyrillic look-alikes folded to Latin), so
+ * one entry covers every spelling variant; an exact key still wins over a normalized one.
+ * Names are Java identifiers and stay case sensitive. A resolved type carries its import,
+ * and resolutions are memoized per distinct type string.
+ */
+public class FieldDictionary {
+    private static final String LOOK_ALIKES_CYRILLIC = "авекмнорстухё";
+    private static final String LOOK_ALIKES_LATIN = "abekmhopctyxe";
+
+    private final Map<String, String> names;
+    private final Map<String, String> typesByKey;
+    private final Map<String, String> typesByNormalizedKey;
+    private final Map<String, String> imports;
+    private final Map<String, ResolvedType> resolvedTypes;
+
+    public FieldDictionary(Map<String, String> nameReplacementDict,
+                           Map<String, String> typeReplacementDict,
+                           Map<String, String> importsDict) {
+        this.names = trimValues(nameReplacementDict);
+        this.typesByKey = trimValues(typeReplacementDict);
+        this.typesByNormalizedKey = new HashMap<>();
+        for (Map.Entry<String, String> entry : typesByKey.entrySet()) {
+            String normalizedKey = normalize(entry.getKey());
+            String previous = typesByNormalizedKey.putIfAbsent(normalizedKey, entry.getValue());
+            if (previous != null && !previous.equals(entry.getValue())) {
+                System.err.println("Type replacement for '" + entry.getKey() + "' is ambiguous with another spelling, '"
+                        + previous + "' is used for its variants");
+            }
+        }
+        this.imports = trimValues(importsDict);
+        this.resolvedTypes = new ConcurrentHashMap<>();
+    }
+
+    public String resolveName(String name) {
+        String replacement = names.get(name);
+        return replacement == null ? name : replacement;
+    }
+
+    public ResolvedType resolveType(String type) {
+        ResolvedType resolved = resolvedTypes.get(type);
+        if (resolved == null) {
+            resolved = resolvedTypes.computeIfAbsent(type, this::lookUpType);
+        }
+        return resolved;
+    }
+
+    private ResolvedType lookUpType(String type) {
+        String replacement = typesByKey.get(type);
+        if (replacement == null) {
+            replacement = typesByNormalizedKey.get(normalize(type));
+        }
+        String resolvedType = replacement == null ? type : replacement;
+        return new ResolvedType(resolvedType, imports.get(resolvedType));
+    }
+
+    static String normalize(String str) {
+        StringBuilder normalized = new StringBuilder(str.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < str.length(); i++) {
+            char c = Character.toLowerCase(str.charAt(i));
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            int lookAlike = LOOK_ALIKES_CYRILLIC.indexOf(c);
+            normalized.append(lookAlike >= 0 ? LOOK_ALIKES_LATIN.charAt(lookAlike) : c);
+        }
+        return normalized.toString();
+    }
+
+    private static Map<String, String> trimValues(Map<String, String> dict) {
+        Map<String, String> trimmed = new HashMap<>();
+        for (Map.Entry<String, String> entry : dict.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                trimmed.put(entry.getKey(), entry.getValue().trim());
+            }
+        }
+        return trimmed;
+    }
+
+    public static class ResolvedType {
+        private final String type;
+        private final String importName;
+
+        ResolvedType(String type, String importName) {
+            this.type = type;
+            this.importName = importName;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        // Fully qualified name to import, null when the type needs no import
+        public String getImportName() {
+            return importName;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package dm.creators;
+
+import dm.FieldInfo;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Renders classes into memory and compiles the whole set in one batch with the system
+ * Java compiler when closed after a run marked complete, so a failed parse compiles
+ * nothing. The result is available as class bytes, a class loader or a jar, without any
+ * source file written to disk.
+ */
+public class InMemoryClassCreator implements ClassCreator {
+    private final ClassRenderer classRenderer;
+    private final XmlMarshallerRenderer xmlMarshallerRenderer;
+    private final ClassLoader parentClassLoader;
+    private final Map<String, String> sources;
+    private Map<String, byte[]> classBytes;
+    private ClassLoader classLoader;
+    private volatile boolean runComplete;
+
+    public InMemoryClassCreator(FieldDictionary fieldDictionary) {
+        this(fieldDictionary, InMemoryClassCreator.class.getClassLoader());
+    }
+
+    public InMemoryClassCreator(FieldDictionary fieldDictionary, ClassLoader parentClassLoader) {
+        this(fieldDictionary, parentClassLoader, false, PrimitiveCollections.BOXED);
+    }
+
+    public InMemoryClassCreator(FieldDictionary fieldDictionary, ClassLoader parentClassLoader,
+                                boolean xmlMarshallers, PrimitiveCollections primitiveCollections) {
+        this.classRenderer = new ClassRenderer(fieldDictionary, primitiveCollections);
+        this.xmlMarshallerRenderer = xmlMarshallers ? new XmlMarshallerRenderer(fieldDictionary, primitiveCollections) : null;
+        this.parentClassLoader = parentClassLoader;
+        this.sources = new LinkedHashMap<>();
+    }
+
+    @Override
+    public synchronized void create(String classType, Collection<FieldInfo> fields) {
+        if (classBytes != null) {
+            throw new IllegalStateException("Classes are already compiled");
+        }
+        StringBuilder content = new StringBuilder();
+        classRenderer.render(classType, fields, content);
+        sources.put(classType, content.toString());
+        if (xmlMarshallerRenderer != null) {
+            content.setLength(0);
+            xmlMarshallerRenderer.render(classType, fields, content);
+            sources.put(XmlMarshallerRenderer.marshallerName(classType), content.toString());
+        }
+        for (String primitiveType : classRenderer.primitiveListTypes(fields)) {
+            String listClassName = PrimitiveCollections.listClassName(primitiveType);
+            if (!sources.containsKey(listClassName)) {
+                content.setLength(0);
+                PrimitiveCollections.renderList(primitiveType, content);
+                sources.put(listClassName, content.toString());
+            }
+        }
+    }
+
+    // Called once every class of the run has been created
+    public void markRunComplete() {
+        runComplete = true;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (classBytes == null && runComplete) {
+            classBytes = compile();
+        }
+    }
+
+    public synchronized Map<String, String> getSources() {
+        return Collections.unmodifiableMap(sources);
+    }
+
+    public synchronized Map<String, byte[]> getClassBytes() {
+        if (classBytes == null) {
+            throw new IllegalStateException("Classes are compiled when the creator is closed after a complete run");
+        }
+        return Collections.unmodifiableMap(classBytes);
+    }
+
+    public synchronized ClassLoader getClassLoader() {
+        if (classLoader == null) {
+            classLoader = new InMemoryClassLoader(getClassBytes(), parentClassLoader);
+        }
+        return classLoader;
+    }
+
+    public void writeJar(Path jarPath) {
+        Map<String, byte[]> classes = new TreeMap<>(getClassBytes());
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(jarPath))) {
+            JarEntry manifestEntry = new JarEntry(JarFile.MANIFEST_NAME);
+            manifestEntry.setTime(ArchiveClassFileStore.ENTRY_TIME);
+            jar.putNextEntry(manifestEntry);
+            manifest.write(jar);
+            jar.closeEntry();
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                JarEntry classEntry = new JarEntry(entry.getKey().replace('.', '/') + ".class");
+                classEntry.setTime(ArchiveClassFileStore.ENTRY_TIME);
+                jar.putNextEntry(classEntry);
+                jar.write(entry.getValue());
+                jar.closeEntry();
+            }
+        }
+        catch (Exception exception) {
+            throw new RuntimeException("Jar file '" + jarPath.toAbsolutePath() + "' was not written : "
+                    + exception.getMessage());
+        }
+    }
+
+    private Map<String, byte[]> compile() {
+        Map<String, byte[]> compiled = new LinkedHashMap<>();
+        if (sources.isEmpty()) {
+            return compiled;
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Java compiler is not available, classes can be compiled only on a JDK");
+        }
+        List<JavaFileObject> compilationUnits = new ArrayList<>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            compilationUnits.add(new SourceFile(source.getKey(), source.getValue()));
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager standardFileManager =
+                compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8);
+        try (JavaFileManager fileManager = new ClassBytesFileManager(standardFileManager, compiled)) {
+            boolean succeeded = compiler.getTask(null, fileManager, diagnostics,
+                    Arrays.asList("-proc:none", "-nowarn"), null, compilationUnits).call();
+            if (!succeeded) {
+                throw new RuntimeException(describeErrors(diagnostics));
+            }
+        }
+        catch (IOException exception) {
+            throw new RuntimeException("Classes were not compiled : " + exception.getMessage());
+        }
+        return compiled;
+    }
+
+    private static String describeErrors(DiagnosticCollector<JavaFileObject> diagnostics) {
+        StringBuilder report = new StringBuilder();
+        int errors = 0;
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() != Diagnostic.Kind.ERROR) continue;
+            errors++;
+            report.append(System.lineSeparator()).append("  ")
+                    .append(diagnostic.getSource() == null ? "" : diagnostic.getSource().getName())
+                    .append(':').append(diagnostic.getLineNumber()).append(": ")
+                    .append(diagnostic.getMessage(Locale.ROOT));
+        }
+        return errors + " compilation error(s) in generated classes:" + report;
+    }
+
+    private static class SourceFile extends SimpleJavaFileObject {
+        private final String content;
+
+        SourceFile(String className, String content) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+
+    private static class ClassFile extends SimpleJavaFileObject {
+        private final String className;
+        private final Map<String, byte[]> compiled;
+
+        ClassFile(String className, Map<String, byte[]> compiled) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+            this.compiled = compiled;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    compiled.put(className, toByteArray());
+                }
+            };
+        }
+    }
+
+    private static class ClassBytesFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, byte[]> compiled;
+
+        ClassBytesFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> compiled) {
+            super(fileManager);
+            this.compiled = compiled;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            return new ClassFile(className, compiled);
+        }
+    }
+
+    private static class InMemoryClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classBytes;
+
+        InMemoryClassLoader(Map<String, byte[]> classBytes, ClassLoader parent) {
+            super(parent);
+            this.classBytes = classBytes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classBytes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
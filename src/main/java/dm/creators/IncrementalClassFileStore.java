@@ -0,0 +1,155 @@
+package dm.creators;
+
+import java.io.BufferedWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a manifest of content hashes in the output directory. Files whose rendered
+ * content did not change are left untouched, so their modification times survive;
+ * changed files are overwritten, and with pruning enabled files generated by an
+ * earlier run but not by a completed current run are deleted.
+ */
+public class IncrementalClassFileStore implements ClassFileStore {
+    public static final String MANIFEST_FILE_NAME = ".xml-to-class.manifest";
+    private static final String MANIFEST_HEADER = "# xml-to-class-parser manifest v1";
+
+    private final Path outFilesPath;
+    private final boolean pruneStaleFiles;
+    private final Map<String, String> previousHashes;
+    private final Map<String, String> currentHashes;
+    private final ThreadLocal<MessageDigest> digests;
+    private volatile boolean runComplete;
+
+    public IncrementalClassFileStore(String outFilesPath, boolean pruneStaleFiles) {
+        this.outFilesPath = Paths.get(outFilesPath);
+        this.pruneStaleFiles = pruneStaleFiles;
+        this.previousHashes = readManifest(this.outFilesPath.resolve(MANIFEST_FILE_NAME));
+        this.currentHashes = new ConcurrentHashMap<>();
+        this.digests = ThreadLocal.withInitial(IncrementalClassFileStore::newDigest);
+    }
+
+    @Override
+    public boolean store(Path filePath, ByteBuffer content) {
+        String fileName = outFilesPath.relativize(filePath).toString();
+        String hash = hash(content.duplicate());
+        boolean changed = !hash.equals(previousHashes.get(fileName)) || !Files.exists(filePath);
+        if (changed) {
+            NewClassFileStore.writeFile(filePath, content,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+        currentHashes.put(fileName, hash);
+        return changed;
+    }
+
+    @Override
+    public void markRunComplete() {
+        runComplete = true;
+    }
+
+    @Override
+    public void close() {
+        Map<String, String> manifest = new TreeMap<>(currentHashes);
+        for (Map.Entry<String, String> previous : previousHashes.entrySet()) {
+            if (manifest.containsKey(previous.getKey())) continue;
+            if (pruneStaleFiles && runComplete) {
+                deleteStaleFile(previous.getKey());
+            }
+            else {
+                manifest.put(previous.getKey(), previous.getValue());
+            }
+        }
+        writeManifest(manifest);
+    }
+
+    // A manifest entry is only a name, one resolving outside the output directory is never deleted
+    private void deleteStaleFile(String fileName) {
+        try {
+            Path outDirectory = outFilesPath.toAbsolutePath().normalize();
+            Path staleFile = outDirectory.resolve(fileName).normalize();
+            if (!staleFile.startsWith(outDirectory) || staleFile.equals(outDirectory)) {
+                System.err.println("Warning! Stale class file '" + fileName + "' is outside the output directory and was not deleted");
+                return;
+            }
+            if (Files.deleteIfExists(staleFile)) {
+                System.out.println("Class file '" + fileName + "' deleted");
+            }
+        }
+        catch (Exception exception) {
+            System.err.println("Stale class file '" + fileName + "' was not deleted : " + exception.getMessage());
+        }
+    }
+
+    private void writeManifest(Map<String, String> manifest) {
+        Path manifestPath = outFilesPath.resolve(MANIFEST_FILE_NAME);
+        Path temporaryPath = outFilesPath.resolve(MANIFEST_FILE_NAME + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temporaryPath, StandardCharsets.UTF_8)) {
+                writer.write(MANIFEST_HEADER);
+                writer.newLine();
+                for (Map.Entry<String, String> entry : manifest.entrySet()) {
+                    writer.write(entry.getValue() + " " + entry.getKey());
+                    writer.newLine();
+                }
+            }
+            Files.move(temporaryPath, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (Exception exception) {
+            throw new RuntimeException("Manifest '" + manifestPath.toAbsolutePath() + "' was not written : "
+                    + exception.getMessage());
+        }
+    }
+
+    private static Map<String, String> readManifest(Path manifestPath) {
+        Map<String, String> hashes = new HashMap<>();
+        if (!Files.exists(manifestPath)) {
+            return hashes;
+        }
+        try {
+            List<String> lines = Files.readAllLines(manifestPath, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !lines.get(0).equals(MANIFEST_HEADER)) {
+                System.err.println("Manifest '" + manifestPath + "' has unknown format and is ignored");
+                return hashes;
+            }
+            for (String line : lines.subList(1, lines.size())) {
+                int separator = line.indexOf(' ');
+                if (separator > 0) {
+                    hashes.put(line.substring(separator + 1), line.substring(0, separator));
+                }
+            }
+        }
+        catch (Exception exception) {
+            System.err.println("Manifest '" + manifestPath + "' was not read : " + exception.getMessage());
+        }
+        return hashes;
+    }
+
+    private String hash(ByteBuffer content) {
+        MessageDigest digest = digests.get();
+        digest.reset();
+        digest.update(content);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
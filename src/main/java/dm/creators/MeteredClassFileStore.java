@@ -0,0 +1,34 @@
+package dm.creators;
+
+import dm.RunMetrics;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+public class MeteredClassFileStore implements ClassFileStore {
+    private final ClassFileStore classFileStore;
+    private final RunMetrics metrics;
+
+    public MeteredClassFileStore(ClassFileStore classFileStore, RunMetrics metrics) {
+        this.classFileStore = classFileStore;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean store(Path filePath, ByteBuffer content) {
+        int bytes = content.remaining();
+        boolean written = classFileStore.store(filePath, content);
+        metrics.recordClassFile(written, bytes);
+        return written;
+    }
+
+    @Override
+    public void markRunComplete() {
+        classFileStore.markRunComplete();
+    }
+
+    @Override
+    public void close() {
+        classFileStore.close();
+    }
+}
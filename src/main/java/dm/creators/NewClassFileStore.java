@@ -0,0 +1,32 @@
+package dm.creators;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class NewClassFileStore implements ClassFileStore {
+    @Override
+    public boolean store(Path filePath, ByteBuffer content) {
+        writeFile(filePath, content, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        return true;
+    }
+
+    static void writeFile(Path filePath, ByteBuffer content, OpenOption... options) {
+        try (FileChannel channel = FileChannel.open(filePath, options)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+        catch (FileAlreadyExistsException exception) {
+            throw new RuntimeException("'" + filePath.getFileName() + "' exist in directory '"
+                    + filePath.toAbsolutePath().toString() + "'");
+        }
+        catch (Exception exception) {
+            throw new RuntimeException("Class file '" + filePath.getFileName() + "' not created in directory '"
+                    + filePath.toAbsolutePath().toString() + "' : " + exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package dm.creators;
+
+import java.util.*;
+
+/**
+ * How a repeated field of a primitive type is declared: a list of the boxed type, a
+ * primitive array, or a generated list class over a primitive array (IntList for int and
+ * so on), written once next to the classes that use it.
+ */
+public enum PrimitiveCollections {
+    BOXED, ARRAY, LIST;
+
+    private static final Map<String, String> BOXED_TYPES = new HashMap<>();
+
+    static {
+        BOXED_TYPES.put("int", "Integer");
+        BOXED_TYPES.put("long", "Long");
+        BOXED_TYPES.put("short", "Short");
+        BOXED_TYPES.put("byte", "Byte");
+        BOXED_TYPES.put("float", "Float");
+        BOXED_TYPES.put("double", "Double");
+        BOXED_TYPES.put("boolean", "Boolean");
+        BOXED_TYPES.put("char", "Character");
+    }
+
+    // Null when the option value names no mode
+    public static PrimitiveCollections forOption(String value) {
+        for (PrimitiveCollections mode : values()) {
+            if (mode.name().equalsIgnoreCase(value.trim())) {
+                return mode;
+            }
+        }
+        return null;
+    }
+
+    public static boolean isPrimitive(String type) {
+        return BOXED_TYPES.containsKey(type);
+    }
+
+    public static String boxed(String type) {
+        String boxed = BOXED_TYPES.get(type);
+        return boxed == null ? type : boxed;
+    }
+
+    public static String listClassName(String primitiveType) {
+        return boxed(primitiveType).replace("Integer", "Int").replace("Character", "Char") + "List";
+    }
+
+    // Declared type of a repeated field with elements of the given type
+    public String fieldType(String type) {
+        if (!isPrimitive(type) || this == BOXED) {
+            return "List<" + boxed(type) + ">";
+        }
+        return this == ARRAY ? type + "[]" : listClassName(type);
+    }
+
+    // True when the repeated field is declared as a java.util.List
+    public boolean isJavaList(String type) {
+        return !isPrimitive(type) || this == BOXED;
+    }
+
+    // Generated list class used by the repeated field, null when it needs none
+    public String listClass(String type) {
+        return this == LIST && isPrimitive(type) ? listClassName(type) : null;
+    }
+
+    public static void renderList(String primitiveType, StringBuilder content) {
+        String className = listClassName(primitiveType);
+        String separator = System.lineSeparator();
+        content.append("import java.util.Arrays;").append(separator)
+                .append(separator)
+                .append("public final class ").append(className).append(" {").append(separator)
+                .append("\tprivate ").append(primitiveType).append("[] values = new ").append(primitiveType).append("[8];").append(separator)
+                .append("\tprivate int size;").append(separator)
+                .append(separator)
+                .append("\tpublic void add(").append(primitiveType).append(" value) {").append(separator)
+                .append("\t\tif (size == values.length) {").append(separator)
+                .append("\t\t\tvalues = Arrays.copyOf(values, size * 2);").append(separator)
+                .append("\t\t}").append(separator)
+                .append("\t\tvalues[size++] = value;").append(separator)
+                .append("\t}").append(separator)
+                .append(separator)
+                .append("\tpublic ").append(primitiveType).append(" get(int index) {").append(separator)
+                .append("\t\tcheckIndex(index);").append(separator)
+                .append("\t\treturn values[index];").append(separator)
+                .append("\t}").append(separator)
+                .append(separator)
+                .append("\tpublic void set(int index, ").append(primitiveType).append(" value) {").append(separator)
+                .append("\t\tcheckIndex(index);").append(separator)
+                .append("\t\tvalues[index] = value;").append(separator)
+                .append("\t}").append(separator)
+                .append(separator)
+                .append("\tpublic int size() {").append(separator)
+                .append("\t\treturn size;").append(separator)
+                .append("\t}").append(separator)
+                .append(separator)
+                .append("\tpublic boolean isEmpty() {").append(separator)
+                .append("\t\treturn size == 0;").append(separator)
+                .append("\t}").append(separator)
+                .append(separator)
+                .append("\tpublic void clear() {").append(separator)
+                .append("\t\tsize = 0;").append(separator)
+                .append("\t}").append(separator)
+                .append(separator)
+                .append("\tpublic ").append(primitiveType).append("[] toArray() {").append(separator)
+                .append("\t\treturn Arrays.copyOf(values, size);").append(separator)
+                .append("\t}").append(separator)
+                .append(separator)
+                .append("\tprivate void checkIndex(int index) {").append(separator)
+                .append("\t\tif (index < 0 || index >= size) {").append(separator)
+                .append("\t\t\tthrow new IndexOutOfBoundsException(\"Index: \" + index + \", size: \" + size);").append(separator)
+                .append("\t\t}").append(separator)
+                .append("\t}").append(separator)
+                .append("}");
+    }
+}
@@ -7,10 +7,13 @@ import java.util.Collection;
 public class PrintClassToConsole implements ClassCreator {
     @Override
     public void create(String classType, Collection<FieldInfo> fields) {
-        System.out.println(" === " + classType + " === ");
+        // One print per class keeps the listing whole when other threads print too
+        StringBuilder listing = new StringBuilder();
+        listing.append(" === ").append(classType).append(" === ").append(System.lineSeparator());
         for (FieldInfo info : fields) {
-            System.out.print("   - " + info.getName());
-            System.out.println(" <" + info.getType() + ">");
+            listing.append("   - ").append(info.getName());
+            listing.append(" <").append(info.getType()).append(">").append(System.lineSeparator());
         }
+        System.out.print(listing);
     }
 }
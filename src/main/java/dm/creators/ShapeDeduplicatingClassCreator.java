@@ -0,0 +1,84 @@
+package dm.creators;
+
+import dm.FieldInfo;
+import dm.RunMetrics;
+
+import java.util.*;
+
+/**
+ * Merges classes of the same shape: a class whose fields have the same names, types and
+ * multiplicities in the same order as a class created before it is not created, and fields
+ * referencing it are typed with that first class instead. The order is part of the shape
+ * because it is the element order of the XML the classes bind. Every class is passed on as
+ * soon as it is created, so only names and shapes are held. A class referenced by one passed
+ * on before it, which happens only in reference cycles, is therefore kept even when its shape
+ * is already known, since the reference can no longer be rewritten.
+ */
+public class ShapeDeduplicatingClassCreator implements ClassCreator {
+    private final ClassCreator classCreator;
+    private final RunMetrics metrics;
+    private final Map<String, String> canonicalNames;
+    private final Map<String, String> shapes;
+    private final Set<String> createdClasses;
+    private final Set<String> forwardReferences;
+
+    public ShapeDeduplicatingClassCreator(ClassCreator classCreator, RunMetrics metrics) {
+        this.classCreator = classCreator;
+        this.metrics = metrics;
+        this.canonicalNames = new HashMap<>();
+        this.shapes = new HashMap<>();
+        this.createdClasses = new HashSet<>();
+        this.forwardReferences = new HashSet<>();
+    }
+
+    @Override
+    public synchronized void create(String classType, Collection<FieldInfo> fields) {
+        createdClasses.add(classType);
+        List<FieldInfo> classFields = rewrite(new ArrayList<>(fields));
+        String shape = shape(classFields);
+        String canonicalName = shapes.putIfAbsent(shape, classType);
+        if (canonicalName != null && !canonicalName.equals(classType) && !forwardReferences.contains(classType)) {
+            canonicalNames.put(classType, canonicalName);
+            metrics.recordClassMerge(classType, canonicalName);
+            return;
+        }
+        forwardReferences.remove(classType);
+        for (FieldInfo field : classFields) {
+            String reference = reference(field);
+            if (!createdClasses.contains(reference)) {
+                forwardReferences.add(reference);
+            }
+        }
+        classCreator.create(classType, classFields);
+    }
+
+    @Override
+    public synchronized void close() {
+        classCreator.close();
+    }
+
+    // Fields referencing a merged class are typed with the class it was merged into
+    private List<FieldInfo> rewrite(List<FieldInfo> fields) {
+        List<FieldInfo> rewritten = new ArrayList<>(fields.size());
+        for (FieldInfo field : fields) {
+            String canonicalName = canonicalNames.get(reference(field));
+            rewritten.add(canonicalName == null
+                    ? field
+                    : new FieldInfo(field.getName(), canonicalName, field.getMultiplicityType(), canonicalName));
+        }
+        return rewritten;
+    }
+
+    private static String reference(FieldInfo field) {
+        return field.getDeclaredClass() != null ? field.getDeclaredClass() : field.getType();
+    }
+
+    private static String shape(List<FieldInfo> fields) {
+        StringBuilder shape = new StringBuilder();
+        for (FieldInfo field : fields) {
+            shape.append(field.getName()).append('\u0000').append(field.getType()).append('\u0000')
+                    .append(field.getMultiplicityType()).append('\n');
+        }
+        return shape.toString();
+    }
+}
@@ -0,0 +1,32 @@
+package dm.creators;
+
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+
+public class SyncClassFileWriter implements ClassFileWriter {
+    private final Charset charset;
+    private final ClassFileStore classFileStore;
+
+    public SyncClassFileWriter() {
+        this(new NewClassFileStore());
+    }
+
+    public SyncClassFileWriter(ClassFileStore classFileStore) {
+        this(Charset.defaultCharset(), classFileStore);
+    }
+
+    public SyncClassFileWriter(Charset charset, ClassFileStore classFileStore) {
+        this.charset = charset;
+        this.classFileStore = classFileStore;
+    }
+
+    @Override
+    public void write(Path filePath, CharSequence content) {
+        classFileStore.store(filePath, charset.encode(content.toString()));
+    }
+
+    @Override
+    public void close() {
+        classFileStore.close();
+    }
+}
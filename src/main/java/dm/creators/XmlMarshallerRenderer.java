@@ -0,0 +1,318 @@
+package dm.creators;
+
+import dm.FieldInfo;
+
+import java.util.*;
+
+/**
+ * Source of the StAX companion of a class: static read and write methods that bind the
+ * class to XML elements named after the original field names, with a string switch over
+ * the element names and no reflection. A repeated field is a sequence of elements of the
+ * same name. Fields of generated classes are bound through their own companions; a field
+ * of an imported type that has no known text form is left out and its elements are skipped.
+ */
+public class XmlMarshallerRenderer {
+    public static final String CLASS_SUFFIX = "XmlMarshaller";
+
+    private static final Map<String, String[]> VALUE_TYPES = new HashMap<>();
+
+    static {
+        // Parse expression of the trimmed text and text expression of the value, %s is replaced by either
+        addValueType("String", "%s", "%s");
+        addValueType("Object", "%s", "String.valueOf(%s)");
+        addValueType("int", "Integer.parseInt(%s)", "String.valueOf(%s)");
+        addValueType("Integer", "Integer.valueOf(%s)", "String.valueOf(%s)");
+        addValueType("long", "Long.parseLong(%s)", "String.valueOf(%s)");
+        addValueType("Long", "Long.valueOf(%s)", "String.valueOf(%s)");
+        addValueType("short", "Short.parseShort(%s)", "String.valueOf(%s)");
+        addValueType("Short", "Short.valueOf(%s)", "String.valueOf(%s)");
+        addValueType("byte", "Byte.parseByte(%s)", "String.valueOf(%s)");
+        addValueType("Byte", "Byte.valueOf(%s)", "String.valueOf(%s)");
+        addValueType("float", "Float.parseFloat(%s)", "String.valueOf(%s)");
+        addValueType("Float", "Float.valueOf(%s)", "String.valueOf(%s)");
+        addValueType("double", "Double.parseDouble(%s)", "String.valueOf(%s)");
+        addValueType("Double", "Double.valueOf(%s)", "String.valueOf(%s)");
+        addValueType("boolean", "(\"true\".equals(%1$s) || \"1\".equals(%1$s))", "String.valueOf(%s)");
+        addValueType("Boolean", "(\"true\".equals(%1$s) || \"1\".equals(%1$s))", "String.valueOf(%s)");
+        addValueType("char", "%s.charAt(0)", "String.valueOf(%s)");
+        addValueType("Character", "%s.charAt(0)", "String.valueOf(%s)");
+        addValueType("BigDecimal", "new BigDecimal(%s)", "%s.toPlainString()");
+        addValueType("BigInteger", "new BigInteger(%s)", "%s.toString()");
+        addValueType("UUID", "UUID.fromString(%s)", "%s.toString()");
+        for (String temporalType : Arrays.asList("LocalDate", "LocalDateTime", "LocalTime", "OffsetDateTime",
+                "OffsetTime", "ZonedDateTime", "Instant", "Duration", "Period", "Year", "YearMonth")) {
+            addValueType(temporalType, temporalType + ".parse(%s)", "%s.toString()");
+        }
+    }
+
+    private final FieldDictionary fieldDictionary;
+    private final PrimitiveCollections primitiveCollections;
+
+    public XmlMarshallerRenderer(FieldDictionary fieldDictionary) {
+        this(fieldDictionary, PrimitiveCollections.BOXED);
+    }
+
+    public XmlMarshallerRenderer(FieldDictionary fieldDictionary, PrimitiveCollections primitiveCollections) {
+        this.fieldDictionary = fieldDictionary;
+        this.primitiveCollections = primitiveCollections;
+    }
+
+    public static String marshallerName(String classType) {
+        return classType + CLASS_SUFFIX;
+    }
+
+    public void render(String classType, Collection<FieldInfo> fields, StringBuilder content) {
+        List<Binding> bindings = new ArrayList<>(fields.size());
+        Set<String> addedNames = new HashSet<>();
+        Set<String> addedElements = new HashSet<>();
+        for (FieldInfo info : fields) {
+            String name = fieldDictionary.resolveName(info.getName());
+            if (!addedNames.add(name) || !addedElements.add(info.getName())) continue;
+            bindings.add(new Binding(info, name, fieldDictionary.resolveType(info.getType()), primitiveCollections));
+        }
+        String marshallerName = marshallerName(classType);
+        appendImports(bindings, content);
+        content.append(System.lineSeparator());
+        line(content, 0, "public final class " + marshallerName + " {");
+        line(content, 1, "private " + marshallerName + "() {");
+        line(content, 1, "}");
+        content.append(System.lineSeparator());
+        appendRead(classType, bindings, content);
+        content.append(System.lineSeparator());
+        appendWrite(classType, bindings, content);
+        content.append(System.lineSeparator());
+        appendHelpers(bindings, content);
+        content.append("}");
+    }
+
+    private void appendImports(List<Binding> bindings, StringBuilder imports) {
+        imports.append("import javax.xml.stream.XMLStreamConstants;").append(System.lineSeparator());
+        imports.append("import javax.xml.stream.XMLStreamException;").append(System.lineSeparator());
+        imports.append("import javax.xml.stream.XMLStreamReader;").append(System.lineSeparator());
+        imports.append("import javax.xml.stream.XMLStreamWriter;").append(System.lineSeparator());
+        boolean hasListField = false;
+        boolean hasArrayField = false;
+        Set<String> addedImportsForTypes = new HashSet<>();
+        for (Binding binding : bindings) {
+            hasListField |= binding.many && binding.bound() && !binding.array && binding.listClass == null;
+            hasArrayField |= binding.array && binding.bound();
+            if (binding.bound() && binding.type.getImportName() != null && addedImportsForTypes.add(binding.type.getType())) {
+                imports.append("import ").append(binding.type.getImportName()).append(";").append(System.lineSeparator());
+            }
+        }
+        if (hasListField) {
+            imports.append("import java.util.ArrayList;").append(System.lineSeparator());
+        }
+        if (hasArrayField) {
+            imports.append("import java.util.Arrays;").append(System.lineSeparator());
+        }
+    }
+
+    // The reader is on the start element of the object and is left on its end element
+    private void appendRead(String classType, List<Binding> bindings, StringBuilder content) {
+        line(content, 1, "public static " + classType + " read(XMLStreamReader reader) throws XMLStreamException {");
+        line(content, 2, classType + " value = new " + classType + "();");
+        for (Binding binding : bindings) {
+            if (binding.valueType != null) {
+                line(content, 2, "String text;");
+                break;
+            }
+        }
+        // Repeated elements of an array field are collected here and copied into the field at the end
+        for (int i = 0; i < bindings.size(); i++) {
+            if (bindings.get(i).array && bindings.get(i).bound()) {
+                line(content, 2, bindings.get(i).type.getType() + "[] values" + i + " = null;");
+                line(content, 2, "int size" + i + " = 0;");
+            }
+        }
+        line(content, 2, "while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {");
+        line(content, 3, "switch (reader.getLocalName()) {");
+        for (int i = 0; i < bindings.size(); i++) {
+            Binding binding = bindings.get(i);
+            if (!binding.bound()) continue;
+            line(content, 4, "case " + literal(binding.element) + ":");
+            String target = "value." + binding.name;
+            if (binding.many && !binding.array) {
+                line(content, 5, "if (" + target + " == null) {");
+                line(content, 6, target + " = new " + (binding.listClass == null ? "ArrayList<>" : binding.listClass) + "();");
+                line(content, 5, "}");
+            }
+            if (binding.valueType == null) {
+                String read = marshallerName(binding.declaredClass) + ".read(reader)";
+                line(content, 5, binding.many ? target + ".add(" + read + ");" : target + " = " + read + ";");
+            }
+            else if (binding.type.getType().equals("String") || binding.type.getType().equals("Object")) {
+                String read = "reader.getElementText()";
+                line(content, 5, binding.many ? target + ".add(" + read + ");" : target + " = " + read + ";");
+            }
+            else {
+                String parse = String.format(binding.valueType[0], "text");
+                line(content, 5, "text = reader.getElementText().trim();");
+                line(content, 5, "if (!text.isEmpty()) {");
+                if (binding.array) {
+                    line(content, 6, "if (values" + i + " == null) {");
+                    line(content, 7, "values" + i + " = new " + binding.type.getType() + "[8];");
+                    line(content, 6, "}");
+                    line(content, 6, "else if (size" + i + " == values" + i + ".length) {");
+                    line(content, 7, "values" + i + " = Arrays.copyOf(values" + i + ", size" + i + " * 2);");
+                    line(content, 6, "}");
+                    line(content, 6, "values" + i + "[size" + i + "++] = " + parse + ";");
+                }
+                else {
+                    line(content, 6, binding.many ? target + ".add(" + parse + ");" : target + " = " + parse + ";");
+                }
+                line(content, 5, "}");
+            }
+            line(content, 5, "break;");
+        }
+        line(content, 4, "default:");
+        line(content, 5, "skipElement(reader);");
+        line(content, 3, "}");
+        line(content, 2, "}");
+        for (int i = 0; i < bindings.size(); i++) {
+            if (bindings.get(i).array && bindings.get(i).bound()) {
+                line(content, 2, "if (values" + i + " != null) {");
+                line(content, 3, "value." + bindings.get(i).name + " = Arrays.copyOf(values" + i + ", size" + i + ");");
+                line(content, 2, "}");
+            }
+        }
+        line(content, 2, "return value;");
+        line(content, 1, "}");
+    }
+
+    private void appendWrite(String classType, List<Binding> bindings, StringBuilder content) {
+        line(content, 1, "public static void write(XMLStreamWriter writer, String elementName, " + classType
+                + " value) throws XMLStreamException {");
+        line(content, 2, "writer.writeStartElement(elementName);");
+        for (Binding binding : bindings) {
+            if (!binding.bound()) continue;
+            String source = "value." + binding.name;
+            int indent = 2;
+            boolean nullable = !PrimitiveCollections.isPrimitive(binding.type.getType());
+            if (binding.many) {
+                line(content, 2, "if (" + source + " != null) {");
+                if (binding.listClass != null) {
+                    line(content, 3, "for (int i = 0; i < " + source + ".size(); i++) {");
+                    source = source + ".get(i)";
+                }
+                else if (binding.array) {
+                    line(content, 3, "for (" + binding.type.getType() + " item : " + source + ") {");
+                    source = "item";
+                }
+                else {
+                    line(content, 3, "for (" + PrimitiveCollections.boxed(binding.type.getType()) + " item : " + source + ") {");
+                    source = "item";
+                    nullable = true;
+                }
+                indent = 4;
+            }
+            if (nullable) {
+                line(content, indent, "if (" + source + " != null) {");
+            }
+            int statementIndent = nullable ? indent + 1 : indent;
+            if (binding.valueType == null) {
+                String value = binding.type.getType().equals(binding.declaredClass)
+                        ? source
+                        : "(" + binding.declaredClass + ") " + source;
+                line(content, statementIndent, marshallerName(binding.declaredClass) + ".write(writer, "
+                        + literal(binding.element) + ", " + value + ");");
+            }
+            else {
+                line(content, statementIndent, "writeText(writer, " + literal(binding.element) + ", "
+                        + String.format(binding.valueType[1], source) + ");");
+            }
+            if (nullable) {
+                line(content, indent, "}");
+            }
+            if (binding.many) {
+                line(content, 3, "}");
+                line(content, 2, "}");
+            }
+        }
+        line(content, 2, "writer.writeEndElement();");
+        line(content, 1, "}");
+    }
+
+    private void appendHelpers(List<Binding> bindings, StringBuilder content) {
+        for (Binding binding : bindings) {
+            if (binding.valueType != null) {
+                line(content, 1, "private static void writeText(XMLStreamWriter writer, String elementName, String text)"
+                        + " throws XMLStreamException {");
+                line(content, 2, "writer.writeStartElement(elementName);");
+                line(content, 2, "writer.writeCharacters(text);");
+                line(content, 2, "writer.writeEndElement();");
+                line(content, 1, "}");
+                content.append(System.lineSeparator());
+                break;
+            }
+        }
+        line(content, 1, "private static void skipElement(XMLStreamReader reader) throws XMLStreamException {");
+        line(content, 2, "int depth = 1;");
+        line(content, 2, "while (depth > 0) {");
+        line(content, 3, "int event = reader.next();");
+        line(content, 3, "if (event == XMLStreamConstants.START_ELEMENT) {");
+        line(content, 4, "depth++;");
+        line(content, 3, "}");
+        line(content, 3, "else if (event == XMLStreamConstants.END_ELEMENT) {");
+        line(content, 4, "depth--;");
+        line(content, 3, "}");
+        line(content, 2, "}");
+        line(content, 1, "}");
+    }
+
+    private static void addValueType(String type, String parse, String text) {
+        VALUE_TYPES.put(type, new String[] {parse, text});
+    }
+
+    private static String literal(String text) {
+        return "\"" + text.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static void line(StringBuilder content, int indent, String text) {
+        for (int i = 0; i < indent; i++) {
+            content.append('\t');
+        }
+        content.append(text).append(System.lineSeparator());
+    }
+
+    // How one field is read and written: through the companion of its class or as element text
+    private static class Binding {
+        private final String element;
+        private final String name;
+        private final FieldDictionary.ResolvedType type;
+        private final boolean many;
+        private final String declaredClass;
+        private final String[] valueType;
+        private final boolean array;
+        private final String listClass;
+
+        Binding(FieldInfo info, String name, FieldDictionary.ResolvedType type, PrimitiveCollections primitiveCollections) {
+            this.element = info.getName();
+            this.name = name;
+            this.type = type;
+            this.many = info.getMultiplicityType() == MultiplicityType.MANY;
+            // Rows nested under a field without a type declare its class, while the field stays an Object
+            if (info.getDeclaredClass() != null
+                    && (type.getType().equals(info.getDeclaredClass()) || type.getType().equals("Object"))) {
+                this.declaredClass = info.getDeclaredClass();
+                this.valueType = null;
+            }
+            else if (VALUE_TYPES.containsKey(type.getType())) {
+                this.declaredClass = null;
+                this.valueType = VALUE_TYPES.get(type.getType());
+            }
+            else {
+                // Generated classes are not imported, an imported type of unknown text form is not bound
+                this.declaredClass = type.getImportName() == null && !type.getType().isEmpty() ? type.getType() : null;
+                this.valueType = null;
+            }
+            this.array = many && valueType != null && primitiveCollections == PrimitiveCollections.ARRAY
+                    && PrimitiveCollections.isPrimitive(type.getType());
+            this.listClass = many && valueType != null ? primitiveCollections.listClass(type.getType()) : null;
+        }
+
+        boolean bound() {
+            return declaredClass != null || valueType != null;
+        }
+    }
+}
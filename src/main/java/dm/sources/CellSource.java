@@ -0,0 +1,15 @@
+package dm.sources;
+
+public interface CellSource {
+    SheetSource getSheet();
+
+    RowSource getRow();
+
+    int getColumnIndex();
+
+    boolean isStringType();
+
+    String getStringCellValue();
+
+    String getHyperlinkAddress();
+}
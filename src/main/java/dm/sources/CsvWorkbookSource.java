@@ -0,0 +1,471 @@
+package dm.sources;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Plain-text workbook: one CSV or TSV file per sheet, named after the file without its
+ * extension. The path is a single file or a directory of them, sheets are ordered by file
+ * name. Files are memory mapped and tokenized in place: a sheet keeps only cell offsets,
+ * and a cell text is decoded when it is read. Quoted fields follow RFC 4180; a CSV file
+ * whose first line has more semicolons than commas is read with semicolons. There are no
+ * hyperlinks, sheets reference each other by name. Every non-empty field is a text cell.
+ * The mappings are released when the workbook is closed, so the files can be saved again
+ * while the JVM keeps running.
+ */
+public class CsvWorkbookSource implements WorkbookSource {
+    private final List<CsvSheet> sheets;
+
+    private CsvWorkbookSource(List<CsvSheet> sheets) {
+        this.sheets = sheets;
+    }
+
+    public static CsvWorkbookSource open(String path) throws IOException {
+        List<CsvSheet> sheets = new ArrayList<>();
+        for (Path file : listSheetFiles(Paths.get(path))) {
+            String stamp = WorkbookSources.fileStamp(file);
+            sheets.add(new CsvSheet(sheetName(file), map(file), file.getFileName().toString().toLowerCase().endsWith(".tsv"), stamp));
+        }
+        return new CsvWorkbookSource(sheets);
+    }
+
+    // A CSV or TSV file, or a directory with at least one of them
+    public static boolean isCsvPath(String path) {
+        Path file = Paths.get(path);
+        if (!Files.isDirectory(file)) {
+            return isSheetFile(file);
+        }
+        try {
+            return !listSheetFiles(file).isEmpty();
+        }
+        catch (IOException exception) {
+            return false;
+        }
+    }
+
+    public static boolean isSheetFile(Path file) {
+        String fileName = file.getFileName() == null ? "" : file.getFileName().toString().toLowerCase();
+        return fileName.endsWith(".csv") || fileName.endsWith(".tsv");
+    }
+
+    // The file itself, or the sheet files of a directory sorted by name
+    public static List<Path> listSheetFiles(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return Collections.singletonList(path);
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> directory = Files.newDirectoryStream(path)) {
+            for (Path file : directory) {
+                if (isSheetFile(file) && Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    @Override
+    public int getNumberOfSheets() {
+        return sheets.size();
+    }
+
+    @Override
+    public String getSheetName(int index) {
+        return sheets.get(index).sheetName;
+    }
+
+    @Override
+    public SheetSource getSheet(String name) {
+        for (CsvSheet sheet : sheets) {
+            if (sheet.sheetName.equalsIgnoreCase(name)) {
+                return sheet;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public SheetSource getSheetAt(int index) {
+        return sheets.get(index);
+    }
+
+    @Override
+    public String getSheetStamp(int index) {
+        return sheets.get(index).stamp;
+    }
+
+    @Override
+    public void close() {
+        for (CsvSheet sheet : sheets) {
+            sheet.releaseMapping();
+        }
+    }
+
+    private static String sheetName(Path file) {
+        String fileName = file.getFileName().toString();
+        return fileName.substring(0, fileName.lastIndexOf('.'));
+    }
+
+    // The mapping stays valid after the channel is closed until it is unmapped or the buffer is collected
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File '" + file + "' is larger than 2 GB");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    // Unmaps now instead of when the buffer is collected: Windows does not let a mapped file be replaced.
+    // Unsafe.invokeCleaner on Java 9 and later, the buffer cleaner on Java 8
+    private static void unmap(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            return;
+        }
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field unsafe = unsafeClass.getDeclaredField("theUnsafe");
+            unsafe.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(unsafe.get(null), buffer);
+        }
+        catch (NoSuchMethodException exception) {
+            try {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+            catch (ReflectiveOperationException | RuntimeException ignored) {
+                // Released when the buffer is collected
+            }
+        }
+        catch (ReflectiveOperationException | RuntimeException ignored) {
+            // Released when the buffer is collected
+        }
+    }
+
+    private static class CsvSheet implements SheetSource {
+        private final String sheetName;
+        private ByteBuffer data;
+        private final boolean tabSeparated;
+        private final String stamp;
+        // Readers of the mapping hold the read lock, so release waits for them before unmapping
+        private final ReadWriteLock mappingLock;
+        private SheetIndex index;
+
+        CsvSheet(String sheetName, ByteBuffer data, boolean tabSeparated, String stamp) {
+            this.sheetName = sheetName;
+            this.data = data;
+            this.tabSeparated = tabSeparated;
+            this.stamp = stamp;
+            this.mappingLock = new ReentrantReadWriteLock();
+        }
+
+        @Override
+        public String getSheetName() {
+            return sheetName;
+        }
+
+        @Override
+        public Iterator<RowSource> iterator() {
+            final SheetIndex sheetIndex = getIndex();
+            return new Iterator<RowSource>() {
+                private int row = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return row < sheetIndex.rowCount;
+                }
+
+                @Override
+                public RowSource next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return new CsvRow(CsvSheet.this, sheetIndex, row++);
+                }
+            };
+        }
+
+        // A released sheet fails on reading instead of touching the unmapped memory
+        private void releaseMapping() {
+            mappingLock.writeLock().lock();
+            try {
+                if (data != null) {
+                    ByteBuffer mapping = data;
+                    data = null;
+                    unmap(mapping);
+                }
+            }
+            finally {
+                mappingLock.writeLock().unlock();
+            }
+        }
+
+        private synchronized SheetIndex getIndex() {
+            mappingLock.readLock().lock();
+            try {
+                if (data == null) {
+                    throw new IllegalStateException("Sheet '" + sheetName + "' is closed");
+                }
+                if (index == null) {
+                    try {
+                        index = new SheetIndex(data, tabSeparated ? (byte) '\t' : detectDelimiter(data));
+                    }
+                    catch (RuntimeException exception) {
+                        throw new RuntimeException("Sheet '" + sheetName + "' was not read: " + exception.getMessage());
+                    }
+                }
+                return index;
+            }
+            finally {
+                mappingLock.readLock().unlock();
+            }
+        }
+
+        private String decode(int start, int end, boolean quoted) {
+            String value;
+            mappingLock.readLock().lock();
+            try {
+                if (data == null) {
+                    throw new IllegalStateException("Sheet '" + sheetName + "' is closed");
+                }
+                ByteBuffer cell = data.duplicate();
+                cell.position(start);
+                cell.limit(end);
+                value = StandardCharsets.UTF_8.decode(cell).toString();
+            }
+            finally {
+                mappingLock.readLock().unlock();
+            }
+            return quoted && value.indexOf('"') >= 0 ? value.replace("\"\"", "\"") : value;
+        }
+
+        private static byte detectDelimiter(ByteBuffer data) {
+            int commas = 0;
+            int semicolons = 0;
+            boolean quoted = false;
+            for (int i = 0; i < data.limit(); i++) {
+                byte b = data.get(i);
+                if (b == '"') {
+                    quoted = !quoted;
+                }
+                else if (!quoted && (b == '\n' || b == '\r')) {
+                    break;
+                }
+                else if (!quoted && b == ',') {
+                    commas++;
+                }
+                else if (!quoted && b == ';') {
+                    semicolons++;
+                }
+            }
+            return semicolons > commas ? (byte) ';' : (byte) ',';
+        }
+    }
+
+    // Cell offsets of a sheet in parallel arrays; rows without cells are left out
+    private static class SheetIndex {
+        private int[] rowNums = new int[64];
+        private int[] rowFirstCells = new int[65];
+        private int rowCount;
+        private int[] cellStarts = new int[256];
+        private int[] cellEnds = new int[256];
+        private int[] cellColumns = new int[256];
+        private final BitSet quotedCells = new BitSet();
+        private int cellCount;
+
+        SheetIndex(ByteBuffer data, byte delimiter) {
+            int limit = data.limit();
+            int position = hasByteOrderMark(data) ? 3 : 0;
+            int rowNum = 0;
+            int column = 0;
+            while (position < limit) {
+                if (data.get(position) == '"') {
+                    int end = position + 1;
+                    while (true) {
+                        if (end >= limit) {
+                            throw new IllegalStateException("Quoted field is not closed in row '" + rowNum + "'");
+                        }
+                        if (data.get(end) == '"') {
+                            if (end + 1 < limit && data.get(end + 1) == '"') {
+                                end += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        end++;
+                    }
+                    addCell(column, position + 1, end, true);
+                    position = end + 1;
+                    // Text after the closing quote is ignored up to the field end
+                    while (position < limit && !isFieldEnd(data.get(position), delimiter)) {
+                        position++;
+                    }
+                }
+                else {
+                    int end = position;
+                    while (end < limit && !isFieldEnd(data.get(end), delimiter)) {
+                        end++;
+                    }
+                    addCell(column, position, end, false);
+                    position = end;
+                }
+                if (position >= limit) {
+                    break;
+                }
+                byte b = data.get(position++);
+                if (b == delimiter) {
+                    column++;
+                    continue;
+                }
+                if (b == '\r' && position < limit && data.get(position) == '\n') {
+                    position++;
+                }
+                endRow(rowNum++);
+                column = 0;
+            }
+            endRow(rowNum);
+        }
+
+        private static boolean hasByteOrderMark(ByteBuffer data) {
+            return data.limit() >= 3 && (data.get(0) & 0xFF) == 0xEF
+                    && (data.get(1) & 0xFF) == 0xBB && (data.get(2) & 0xFF) == 0xBF;
+        }
+
+        private static boolean isFieldEnd(byte b, byte delimiter) {
+            return b == delimiter || b == '\n' || b == '\r';
+        }
+
+        // Empty fields are not cells, as blank cells of a sheet
+        private void addCell(int column, int start, int end, boolean quoted) {
+            if (start == end) {
+                return;
+            }
+            if (cellCount == cellStarts.length) {
+                cellStarts = Arrays.copyOf(cellStarts, cellCount * 2);
+                cellEnds = Arrays.copyOf(cellEnds, cellCount * 2);
+                cellColumns = Arrays.copyOf(cellColumns, cellCount * 2);
+            }
+            cellStarts[cellCount] = start;
+            cellEnds[cellCount] = end;
+            cellColumns[cellCount] = column;
+            quotedCells.set(cellCount, quoted);
+            cellCount++;
+        }
+
+        private void endRow(int rowNum) {
+            if (cellCount == rowFirstCells[rowCount]) {
+                return;
+            }
+            if (rowCount + 1 == rowNums.length) {
+                rowNums = Arrays.copyOf(rowNums, rowNums.length * 2);
+                rowFirstCells = Arrays.copyOf(rowFirstCells, rowNums.length + 1);
+            }
+            rowNums[rowCount] = rowNum;
+            rowCount++;
+            rowFirstCells[rowCount] = cellCount;
+        }
+    }
+
+    private static class CsvRow implements RowSource {
+        private final CsvSheet sheet;
+        private final SheetIndex index;
+        private final int row;
+
+        CsvRow(CsvSheet sheet, SheetIndex index, int row) {
+            this.sheet = sheet;
+            this.index = index;
+            this.row = row;
+        }
+
+        @Override
+        public int getRowNum() {
+            return index.rowNums[row];
+        }
+
+        @Override
+        public CellSource getCell(int columnIndex) {
+            int from = index.rowFirstCells[row];
+            int position = Arrays.binarySearch(index.cellColumns, from, index.rowFirstCells[row + 1], columnIndex);
+            return position < 0 ? null : new CsvCell(this, position);
+        }
+
+        @Override
+        public Iterator<CellSource> iterator() {
+            return new Iterator<CellSource>() {
+                private int cell = index.rowFirstCells[row];
+
+                @Override
+                public boolean hasNext() {
+                    return cell < index.rowFirstCells[row + 1];
+                }
+
+                @Override
+                public CellSource next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return new CsvCell(CsvRow.this, cell++);
+                }
+            };
+        }
+    }
+
+    private static class CsvCell implements CellSource {
+        private final CsvRow row;
+        private final int cell;
+
+        CsvCell(CsvRow row, int cell) {
+            this.row = row;
+            this.cell = cell;
+        }
+
+        @Override
+        public SheetSource getSheet() {
+            return row.sheet;
+        }
+
+        @Override
+        public RowSource getRow() {
+            return row;
+        }
+
+        @Override
+        public int getColumnIndex() {
+            return row.index.cellColumns[cell];
+        }
+
+        @Override
+        public boolean isStringType() {
+            return true;
+        }
+
+        @Override
+        public String getStringCellValue() {
+            SheetIndex index = row.index;
+            return row.sheet.decode(index.cellStarts[cell], index.cellEnds[cell], index.quotedCells.get(cell));
+        }
+
+        @Override
+        public String getHyperlinkAddress() {
+            return null;
+        }
+    }
+}
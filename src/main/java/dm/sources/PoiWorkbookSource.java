@@ -0,0 +1,153 @@
+package dm.sources;
+
+import org.apache.poi.ss.usermodel.*;
+
+import java.util.Iterator;
+
+public class PoiWorkbookSource implements WorkbookSource {
+    private final Workbook workbook;
+    private final String fileStamp;
+
+    public PoiWorkbookSource(Workbook workbook) {
+        this(workbook, null);
+    }
+
+    // The stamp of the file the workbook was loaded from stands for every sheet
+    public PoiWorkbookSource(Workbook workbook, String fileStamp) {
+        this.workbook = workbook;
+        this.fileStamp = fileStamp;
+    }
+
+    @Override
+    public int getNumberOfSheets() {
+        return workbook.getNumberOfSheets();
+    }
+
+    @Override
+    public String getSheetName(int index) {
+        return workbook.getSheetName(index);
+    }
+
+    @Override
+    public SheetSource getSheet(String name) {
+        Sheet sheet = workbook.getSheet(name);
+        return sheet == null ? null : new PoiSheet(sheet);
+    }
+
+    @Override
+    public SheetSource getSheetAt(int index) {
+        return new PoiSheet(workbook.getSheetAt(index));
+    }
+
+    @Override
+    public String getSheetStamp(int index) {
+        return fileStamp;
+    }
+
+    private static class PoiSheet implements SheetSource {
+        private final Sheet sheet;
+
+        PoiSheet(Sheet sheet) {
+            this.sheet = sheet;
+        }
+
+        @Override
+        public String getSheetName() {
+            return sheet.getSheetName();
+        }
+
+        @Override
+        public Iterator<RowSource> iterator() {
+            final Iterator<Row> rows = sheet.rowIterator();
+            return new Iterator<RowSource>() {
+                @Override
+                public boolean hasNext() {
+                    return rows.hasNext();
+                }
+
+                @Override
+                public RowSource next() {
+                    return new PoiRow(PoiSheet.this, rows.next());
+                }
+            };
+        }
+    }
+
+    private static class PoiRow implements RowSource {
+        private final PoiSheet sheet;
+        private final Row row;
+
+        PoiRow(PoiSheet sheet, Row row) {
+            this.sheet = sheet;
+            this.row = row;
+        }
+
+        @Override
+        public int getRowNum() {
+            return row.getRowNum();
+        }
+
+        @Override
+        public CellSource getCell(int columnIndex) {
+            Cell cell = row.getCell(columnIndex);
+            return cell == null ? null : new PoiCell(this, cell);
+        }
+
+        @Override
+        public Iterator<CellSource> iterator() {
+            final Iterator<Cell> cells = row.cellIterator();
+            return new Iterator<CellSource>() {
+                @Override
+                public boolean hasNext() {
+                    return cells.hasNext();
+                }
+
+                @Override
+                public CellSource next() {
+                    return new PoiCell(PoiRow.this, cells.next());
+                }
+            };
+        }
+    }
+
+    private static class PoiCell implements CellSource {
+        private final PoiRow row;
+        private final Cell cell;
+
+        PoiCell(PoiRow row, Cell cell) {
+            this.row = row;
+            this.cell = cell;
+        }
+
+        @Override
+        public SheetSource getSheet() {
+            return row.sheet;
+        }
+
+        @Override
+        public RowSource getRow() {
+            return row;
+        }
+
+        @Override
+        public int getColumnIndex() {
+            return cell.getColumnIndex();
+        }
+
+        @Override
+        public boolean isStringType() {
+            return cell.getCellType() == Cell.CELL_TYPE_STRING;
+        }
+
+        @Override
+        public String getStringCellValue() {
+            return cell.getStringCellValue();
+        }
+
+        @Override
+        public String getHyperlinkAddress() {
+            Hyperlink hyperlink = cell.getHyperlink();
+            return hyperlink == null ? null : hyperlink.getAddress();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package dm.sources;
+
+public interface RowSource extends Iterable<CellSource> {
+    int getRowNum();
+
+    CellSource getCell(int columnIndex);
+}
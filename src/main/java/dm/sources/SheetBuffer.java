@@ -0,0 +1,189 @@
+package dm.sources;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+public class SheetBuffer implements SheetSource {
+    private final String sheetName;
+    private final List<BufferedRow> rows;
+    private final Map<Long, Supplier<String>> hyperlinks;
+
+    private SheetBuffer(String sheetName, Map<Long, Supplier<String>> hyperlinks) {
+        this.sheetName = sheetName;
+        this.rows = new ArrayList<>();
+        this.hyperlinks = hyperlinks;
+    }
+
+    @Override
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    @Override
+    public Iterator<RowSource> iterator() {
+        final Iterator<BufferedRow> iterator = rows.iterator();
+        return new Iterator<RowSource>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public RowSource next() {
+                return iterator.next();
+            }
+        };
+    }
+
+    private String getHyperlinkAddress(int rowNum, int columnIndex) {
+        Supplier<String> address = hyperlinks.get(cellKey(rowNum, columnIndex));
+        return address == null ? null : address.get();
+    }
+
+    private static long cellKey(int rowNum, int columnIndex) {
+        return ((long) rowNum << 32) | (columnIndex & 0xFFFFFFFFL);
+    }
+
+    public static class Builder {
+        private final String sheetName;
+        private final TreeMap<Integer, TreeMap<Integer, String>> values = new TreeMap<>();
+        private final TreeMap<Integer, BitSet> stringTypes = new TreeMap<>();
+        private final Map<Long, Supplier<String>> hyperlinks = new HashMap<>();
+
+        public Builder(String sheetName) {
+            this.sheetName = sheetName;
+        }
+
+        public Builder addRow(int rowNum) {
+            if (!values.containsKey(rowNum)) {
+                values.put(rowNum, new TreeMap<>());
+                stringTypes.put(rowNum, new BitSet());
+            }
+            return this;
+        }
+
+        // A null value marks a non-text cell whose text cannot be read, as with POI numeric cells
+        public Builder addCell(int rowNum, int columnIndex, boolean stringType, String value) {
+            addRow(rowNum);
+            values.get(rowNum).put(columnIndex, value);
+            stringTypes.get(rowNum).set(columnIndex, stringType);
+            return this;
+        }
+
+        public Builder addHyperlink(int rowNum, int columnIndex, Supplier<String> address) {
+            hyperlinks.putIfAbsent(cellKey(rowNum, columnIndex), address);
+            return this;
+        }
+
+        public SheetBuffer build() {
+            SheetBuffer sheet = new SheetBuffer(sheetName, hyperlinks);
+            for (Map.Entry<Integer, TreeMap<Integer, String>> row : values.entrySet()) {
+                BitSet rowStringTypes = stringTypes.get(row.getKey());
+                int[] columns = new int[row.getValue().size()];
+                String[] rowValues = new String[columns.length];
+                boolean[] rowTypes = new boolean[columns.length];
+                int i = 0;
+                for (Map.Entry<Integer, String> cell : row.getValue().entrySet()) {
+                    columns[i] = cell.getKey();
+                    rowValues[i] = cell.getValue();
+                    rowTypes[i] = rowStringTypes.get(cell.getKey());
+                    i++;
+                }
+                sheet.rows.add(new BufferedRow(sheet, row.getKey(), columns, rowTypes, rowValues));
+            }
+            return sheet;
+        }
+    }
+
+    private static class BufferedRow implements RowSource {
+        private final SheetBuffer sheet;
+        private final int rowNum;
+        private final int[] columns;
+        private final boolean[] stringTypes;
+        private final String[] values;
+
+        BufferedRow(SheetBuffer sheet, int rowNum, int[] columns, boolean[] stringTypes, String[] values) {
+            this.sheet = sheet;
+            this.rowNum = rowNum;
+            this.columns = columns;
+            this.stringTypes = stringTypes;
+            this.values = values;
+        }
+
+        @Override
+        public int getRowNum() {
+            return rowNum;
+        }
+
+        @Override
+        public CellSource getCell(int columnIndex) {
+            int position = Arrays.binarySearch(columns, columnIndex);
+            return position < 0 ? null : new BufferedCell(this, position);
+        }
+
+        @Override
+        public Iterator<CellSource> iterator() {
+            return new Iterator<CellSource>() {
+                private int position = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return position < columns.length;
+                }
+
+                @Override
+                public CellSource next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return new BufferedCell(BufferedRow.this, position++);
+                }
+            };
+        }
+    }
+
+    private static class BufferedCell implements CellSource {
+        private final BufferedRow row;
+        private final int position;
+
+        BufferedCell(BufferedRow row, int position) {
+            this.row = row;
+            this.position = position;
+        }
+
+        @Override
+        public SheetSource getSheet() {
+            return row.sheet;
+        }
+
+        @Override
+        public RowSource getRow() {
+            return row;
+        }
+
+        @Override
+        public int getColumnIndex() {
+            return row.columns[position];
+        }
+
+        @Override
+        public boolean isStringType() {
+            return row.stringTypes[position];
+        }
+
+        @Override
+        public String getStringCellValue() {
+            String value = row.values[position];
+            if (value == null) {
+                throw new IllegalStateException("Cannot get a text value from a non-text cell in sheet '"
+                        + row.sheet.sheetName + "' row '" + row.rowNum + "'");
+            }
+            return value;
+        }
+
+        @Override
+        public String getHyperlinkAddress() {
+            return row.sheet.getHyperlinkAddress(row.rowNum, getColumnIndex());
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package dm.sources;
+
+public interface SheetSource extends Iterable<RowSource> {
+    String getSheetName();
+
+    // Drops what was read of the sheet once the caller is done with it; iterating again reads it anew
+    default void release() {
+    }
+}
@@ -0,0 +1,84 @@
+package dm.sources;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Workbook whose sheets are read from the file only when they are first iterated,
+ * so sheets the parse never reaches are not materialized. A read sheet is kept
+ * until it is released, so header lookup and the parse itself read it once, and
+ * the parser releases it as soon as the sheet model is built.
+ */
+public abstract class StreamingWorkbookSource implements WorkbookSource {
+    private final List<String> sheetNames;
+    private final LazySheet[] sheets;
+
+    protected StreamingWorkbookSource(List<String> sheetNames) {
+        this.sheetNames = sheetNames;
+        this.sheets = new LazySheet[sheetNames.size()];
+    }
+
+    protected abstract SheetBuffer readSheet(int index, String sheetName) throws Exception;
+
+    @Override
+    public int getNumberOfSheets() {
+        return sheetNames.size();
+    }
+
+    @Override
+    public String getSheetName(int index) {
+        return sheetNames.get(index);
+    }
+
+    @Override
+    public SheetSource getSheet(String name) {
+        for (int i = 0; i < sheetNames.size(); i++) {
+            if (sheetNames.get(i).equalsIgnoreCase(name)) {
+                return getSheetAt(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized SheetSource getSheetAt(int index) {
+        if (sheets[index] == null) {
+            sheets[index] = new LazySheet(index, sheetNames.get(index));
+        }
+        return sheets[index];
+    }
+
+    private class LazySheet implements SheetSource {
+        private final int index;
+        private final String sheetName;
+        private SheetBuffer buffer;
+
+        LazySheet(int index, String sheetName) {
+            this.index = index;
+            this.sheetName = sheetName;
+        }
+
+        @Override
+        public String getSheetName() {
+            return sheetName;
+        }
+
+        @Override
+        public synchronized Iterator<RowSource> iterator() {
+            if (buffer == null) {
+                try {
+                    buffer = readSheet(index, sheetName);
+                }
+                catch (Exception exception) {
+                    throw new RuntimeException("Sheet '" + sheetName + "' was not read: " + exception.getMessage());
+                }
+            }
+            return buffer.iterator();
+        }
+
+        @Override
+        public synchronized void release() {
+            buffer = null;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package dm.sources;
+
+public interface WorkbookSource extends AutoCloseable {
+    int getNumberOfSheets();
+
+    String getSheetName(int index);
+
+    SheetSource getSheet(String name);
+
+    SheetSource getSheetAt(int index);
+
+    // Cheap stamp of what the sheet is read from, such as file size and time or zip entry checksums,
+    // equal for equal cells; null when only the cells tell
+    default String getSheetStamp(int index) {
+        return null;
+    }
+
+    @Override
+    default void close() {
+    }
+}
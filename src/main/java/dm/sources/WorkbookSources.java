@@ -0,0 +1,47 @@
+package dm.sources;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public final class WorkbookSources {
+    private WorkbookSources() {
+    }
+
+    public static WorkbookSource open(String path, boolean streaming) {
+        try {
+            if (CsvWorkbookSource.isCsvPath(path)) {
+                return CsvWorkbookSource.open(path);
+            }
+            if (Files.isDirectory(Paths.get(path))) {
+                throw new IOException("Directory '" + path + "' has no .csv or .tsv files");
+            }
+            if (path.endsWith(".xlsx")) {
+                if (streaming) return XlsxStreamingWorkbookSource.open(path);
+                try (InputStream stream = new FileInputStream(path)) {
+                    return new PoiWorkbookSource(new XSSFWorkbook(stream), fileStamp(Paths.get(path)));
+                }
+            }
+            if (path.endsWith(".xls")) {
+                if (streaming) return XlsStreamingWorkbookSource.open(path);
+                try (InputStream stream = new FileInputStream(path)) {
+                    return new PoiWorkbookSource(new HSSFWorkbook(stream), fileStamp(Paths.get(path)));
+                }
+            }
+            else throw new IOException("File format does not match 'xls', 'xlsx', 'csv', 'tsv'" );
+        }
+        catch (Exception exception) {
+            throw new RuntimeException("Excel file not opened: " + exception.getMessage());
+        }
+    }
+
+    static String fileStamp(Path file) throws IOException {
+        return file.toAbsolutePath() + ":" + Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+    }
+}
@@ -0,0 +1,347 @@
+package dm.sources;
+
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.record.*;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.util.LittleEndianInput;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the BIFF record stream of an .xls workbook one sheet at a time. The workbook globals
+ * are read once on opening and give the shared strings and the stream offset of every sheet.
+ * The record stream is scattered over the blocks of the OLE2 container and cannot be
+ * positioned without reading all it skips, so it is copied once into a temporary file, which
+ * is removed when the workbook is closed. A sheet is read by loading the bytes from its BOF
+ * record up to the next sheet and parsing them up to its EOF record, so only that sheet is
+ * in memory, and sheets can be read concurrently. An encrypted stream is decrypted by
+ * position from its start, so it is replayed from the start up to the requested sheet instead.
+ */
+public class XlsStreamingWorkbookSource extends StreamingWorkbookSource {
+    private static final String WORKBOOK_STREAM = "Workbook";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final NPOIFSFileSystem fileSystem;
+    private final FileChannel recordStream;
+    private final String fileStamp;
+    private final int[] sheetOffsets;
+    private final long[] sheetEnds;
+    private final SSTRecord sharedStrings;
+
+    private XlsStreamingWorkbookSource(NPOIFSFileSystem fileSystem, FileChannel recordStream,
+                                       GlobalsListener globals, String fileStamp) throws IOException {
+        super(globals.sheetNames);
+        this.fileSystem = fileSystem;
+        this.recordStream = recordStream;
+        this.fileStamp = fileStamp;
+        this.sheetOffsets = new int[globals.sheetOffsets.size()];
+        for (int i = 0; i < sheetOffsets.length; i++) {
+            sheetOffsets[i] = globals.sheetOffsets.get(i);
+        }
+        // A sheet ends where the next sheet in the stream starts, chart substreams included
+        this.sheetEnds = new long[sheetOffsets.length];
+        int[] sortedOffsets = sheetOffsets.clone();
+        Arrays.sort(sortedOffsets);
+        long streamSize = recordStream == null ? 0 : recordStream.size();
+        for (int i = 0; i < sheetOffsets.length; i++) {
+            int next = Arrays.binarySearch(sortedOffsets, sheetOffsets[i] + 1);
+            next = next >= 0 ? next : -next - 1;
+            sheetEnds[i] = next < sortedOffsets.length ? sortedOffsets[next] : streamSize;
+        }
+        this.sharedStrings = globals.sharedStrings;
+    }
+
+    public static XlsStreamingWorkbookSource open(String path) throws Exception {
+        String fileStamp = WorkbookSources.fileStamp(Paths.get(path));
+        NPOIFSFileSystem fileSystem = new NPOIFSFileSystem(new File(path), true);
+        FileChannel recordStream = null;
+        try {
+            GlobalsListener globals = new GlobalsListener();
+            processRecords(fileSystem, globals);
+            if (globals.encrypted) {
+                return new XlsStreamingWorkbookSource(fileSystem, null, globals, fileStamp);
+            }
+            recordStream = FileChannel.open(Files.createTempFile("xml-to-class-", ".biff"), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            try (InputStream in = fileSystem.getRoot().createDocumentInputStream(WORKBOOK_STREAM)) {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    recordStream.write(ByteBuffer.wrap(buffer, 0, read));
+                }
+            }
+            fileSystem.close();
+            return new XlsStreamingWorkbookSource(null, recordStream, globals, fileStamp);
+        }
+        catch (Exception | Error exception) {
+            fileSystem.close();
+            if (recordStream != null) {
+                recordStream.close();
+            }
+            throw exception;
+        }
+    }
+
+    // Sheets share one record stream, so the file stands for every sheet
+    @Override
+    public String getSheetStamp(int index) {
+        return fileStamp;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (recordStream != null) {
+                recordStream.close();
+            }
+            else {
+                fileSystem.close();
+            }
+        }
+        catch (IOException exception) {
+            throw new RuntimeException("Excel file not closed: " + exception.getMessage());
+        }
+    }
+
+    @Override
+    protected SheetBuffer readSheet(int index, String sheetName) throws Exception {
+        if (recordStream == null) {
+            return replaySheet(index, sheetName);
+        }
+        ByteBuffer bytes = ByteBuffer.allocate((int) (sheetEnds[index] - sheetOffsets[index]));
+        while (bytes.hasRemaining()) {
+            if (recordStream.read(bytes, sheetOffsets[index] + bytes.position()) < 0) {
+                throw new IOException("Sheet '" + sheetName + "' is past the end of the record stream");
+            }
+        }
+        bytes.flip();
+        SheetListener listener = new SheetListener(sheetName, 0, sharedStrings);
+        RecordFactoryInputStream records = new RecordFactoryInputStream(new RecordBytes(bytes), false);
+        Record record;
+        while ((record = records.nextRecord()) != null && listener.abortableProcessRecord(record) == 0) {
+            // The listener stops at the EOF record of the sheet
+        }
+        return listener.builder.build();
+    }
+
+    // The file system reads through one channel, so replays run one after another
+    private synchronized SheetBuffer replaySheet(int index, String sheetName) throws Exception {
+        SheetListener listener = new SheetListener(sheetName, index + 1, null);
+        processRecords(fileSystem, listener);
+        return listener.builder.build();
+    }
+
+    private static void processRecords(NPOIFSFileSystem fileSystem, AbortableHSSFListener listener)
+            throws Exception {
+        HSSFRequest request = new HSSFRequest();
+        request.addListenerForAllRecords(listener);
+        new HSSFEventFactory().abortableProcessWorkbookEvents(request, fileSystem.getRoot());
+    }
+
+    // Records of a sheet in memory; the record reader takes a LittleEndianInput as it is instead of
+    // reading it byte by byte through a stream wrapper
+    private static class RecordBytes extends InputStream implements LittleEndianInput {
+        private final ByteBuffer bytes;
+
+        RecordBytes(ByteBuffer bytes) {
+            this.bytes = bytes.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        @Override
+        public int available() {
+            return bytes.remaining();
+        }
+
+        @Override
+        public int read() {
+            return bytes.hasRemaining() ? bytes.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (!bytes.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(length, bytes.remaining());
+            bytes.get(buffer, offset, read);
+            return read;
+        }
+
+        @Override
+        public byte readByte() {
+            return bytes.get();
+        }
+
+        @Override
+        public int readUByte() {
+            return bytes.get() & 0xFF;
+        }
+
+        @Override
+        public short readShort() {
+            return bytes.getShort();
+        }
+
+        @Override
+        public int readUShort() {
+            return bytes.getShort() & 0xFFFF;
+        }
+
+        @Override
+        public int readInt() {
+            return bytes.getInt();
+        }
+
+        @Override
+        public long readLong() {
+            return bytes.getLong();
+        }
+
+        @Override
+        public double readDouble() {
+            return bytes.getDouble();
+        }
+
+        @Override
+        public void readFully(byte[] buffer) {
+            bytes.get(buffer);
+        }
+
+        @Override
+        public void readFully(byte[] buffer, int offset, int length) {
+            bytes.get(buffer, offset, length);
+        }
+    }
+
+    // Sheet names and offsets, shared strings and encryption of the workbook globals substream
+    private static class GlobalsListener extends AbortableHSSFListener {
+        private final List<String> sheetNames = new ArrayList<>();
+        private final List<Integer> sheetOffsets = new ArrayList<>();
+        private SSTRecord sharedStrings;
+        private boolean encrypted;
+
+        @Override
+        public short abortableProcessRecord(Record record) {
+            if (record instanceof BoundSheetRecord) {
+                sheetNames.add(((BoundSheetRecord) record).getSheetname());
+                sheetOffsets.add(((BoundSheetRecord) record).getPositionOfBof());
+            }
+            else if (record instanceof SSTRecord) {
+                sharedStrings = (SSTRecord) record;
+            }
+            else if (record instanceof FilePassRecord) {
+                encrypted = true;
+            }
+            return record instanceof EOFRecord ? (short) 1 : 0;
+        }
+    }
+
+    // Buffers the substream with the given number among those the listener sees, the globals
+    // being 0 from the start of the stream and the sheet being 0 from its own offset. Sheet
+    // substreams follow the globals in the order of their BoundSheet records, nested chart
+    // substreams are skipped by tracking the BOF/EOF depth.
+    private static class SheetListener extends AbortableHSSFListener {
+        private final int sheetSubstream;
+        private final SheetBuffer.Builder builder;
+        private SSTRecord sharedStrings;
+        private int depth = 0;
+        private int substreamIndex = -1;
+        private FormulaRecord pendingFormula;
+
+        SheetListener(String sheetName, int sheetSubstream, SSTRecord sharedStrings) {
+            this.sheetSubstream = sheetSubstream;
+            this.builder = new SheetBuffer.Builder(sheetName);
+            this.sharedStrings = sharedStrings;
+        }
+
+        @Override
+        public short abortableProcessRecord(Record record) {
+            if (record instanceof BOFRecord) {
+                if (depth == 0) {
+                    substreamIndex++;
+                }
+                depth++;
+                return 0;
+            }
+            if (record instanceof EOFRecord) {
+                depth--;
+                return depth == 0 && substreamIndex == sheetSubstream ? (short) 1 : 0;
+            }
+            if (record instanceof SSTRecord) {
+                sharedStrings = (SSTRecord) record;
+                return 0;
+            }
+            if (depth != 1 || substreamIndex != sheetSubstream) {
+                return 0;
+            }
+            if (pendingFormula != null) {
+                String cachedValue = record instanceof StringRecord ? ((StringRecord) record).getString() : "";
+                builder.addCell(pendingFormula.getRow(), pendingFormula.getColumn(), false, cachedValue);
+                pendingFormula = null;
+                if (record instanceof StringRecord) {
+                    return 0;
+                }
+            }
+            addRecord(record);
+            return 0;
+        }
+
+        // Mirrors HSSFCell.getCellType() and getStringCellValue() for each cell record
+        private void addRecord(Record record) {
+            if (record instanceof RowRecord) {
+                builder.addRow(((RowRecord) record).getRowNumber());
+            }
+            else if (record instanceof LabelSSTRecord) {
+                LabelSSTRecord label = (LabelSSTRecord) record;
+                builder.addCell(label.getRow(), label.getColumn(), true,
+                        sharedStrings.getString(label.getSSTIndex()).getString());
+            }
+            else if (record instanceof LabelRecord) {
+                LabelRecord label = (LabelRecord) record;
+                builder.addCell(label.getRow(), label.getColumn(), true, label.getValue());
+            }
+            else if (record instanceof BlankRecord) {
+                BlankRecord blank = (BlankRecord) record;
+                builder.addCell(blank.getRow(), blank.getColumn(), false, "");
+            }
+            else if (record instanceof MulBlankRecord) {
+                MulBlankRecord blanks = (MulBlankRecord) record;
+                for (int i = 0; i < blanks.getNumColumns(); i++) {
+                    builder.addCell(blanks.getRow(), blanks.getFirstColumn() + i, false, "");
+                }
+            }
+            else if (record instanceof FormulaRecord) {
+                FormulaRecord formula = (FormulaRecord) record;
+                if (formula.getCachedResultType() == Cell.CELL_TYPE_STRING) {
+                    pendingFormula = formula;
+                }
+                else {
+                    builder.addCell(formula.getRow(), formula.getColumn(), false, null);
+                }
+            }
+            else if (record instanceof NumberRecord || record instanceof BoolErrRecord) {
+                CellValueRecordInterface cell = (CellValueRecordInterface) record;
+                builder.addCell(cell.getRow(), cell.getColumn(), false, null);
+            }
+            else if (record instanceof HyperlinkRecord) {
+                final HyperlinkRecord hyperlink = (HyperlinkRecord) record;
+                builder.addHyperlink(hyperlink.getFirstRow(), hyperlink.getFirstColumn(), hyperlink::getAddress);
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package dm.sources;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class XlsxStreamingWorkbookSource extends StreamingWorkbookSource {
+    private static final String RELATIONSHIPS_NAMESPACE =
+            "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private final OPCPackage xlsxPackage;
+    private final List<PackagePart> sheetParts;
+    private final List<String> sheetStamps;
+    private ReadOnlySharedStringsTable sharedStrings;
+
+    private XlsxStreamingWorkbookSource(OPCPackage xlsxPackage, List<String> sheetNames, List<PackagePart> sheetParts,
+                                        List<String> sheetStamps) {
+        super(sheetNames);
+        this.xlsxPackage = xlsxPackage;
+        this.sheetParts = sheetParts;
+        this.sheetStamps = sheetStamps;
+    }
+
+    public static XlsxStreamingWorkbookSource open(String path) throws Exception {
+        OPCPackage xlsxPackage = OPCPackage.open(path, PackageAccess.READ);
+        XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) new XSSFReader(xlsxPackage).getSheetsData();
+        List<String> sheetNames = new ArrayList<>();
+        List<PackagePart> sheetParts = new ArrayList<>();
+        while (sheets.hasNext()) {
+            sheets.next().close();
+            sheetNames.add(sheets.getSheetName());
+            sheetParts.add(sheets.getSheetPart());
+        }
+        return new XlsxStreamingWorkbookSource(xlsxPackage, sheetNames, sheetParts, readSheetStamps(path, sheetParts));
+    }
+
+    @Override
+    public String getSheetStamp(int index) {
+        return sheetStamps.get(index);
+    }
+
+    // Checksums and sizes of the sheet part, its relationships, which hold hyperlink targets, and the
+    // shared strings, as recorded in the zip directory, so no part is inflated
+    private static List<String> readSheetStamps(String path, List<PackagePart> sheetParts) throws IOException {
+        Map<String, String> entryStamps = new HashMap<>();
+        String sharedStringsStamp = null;
+        try (ZipFile zip = new ZipFile(path)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String stamp = Long.toHexString(entry.getCrc()) + ":" + entry.getSize();
+                entryStamps.put(entry.getName(), stamp);
+                if (entry.getName().toLowerCase().endsWith("sharedstrings.xml")) {
+                    sharedStringsStamp = stamp;
+                }
+            }
+        }
+        List<String> sheetStamps = new ArrayList<>(sheetParts.size());
+        for (PackagePart sheetPart : sheetParts) {
+            String partName = sheetPart.getPartName().getName().substring(1);
+            int separator = partName.lastIndexOf('/') + 1;
+            String relationshipsName = partName.substring(0, separator) + "_rels/" + partName.substring(separator) + ".rels";
+            String sheetStamp = entryStamps.get(partName);
+            sheetStamps.add(sheetStamp == null
+                    ? null
+                    : sheetStamp + "/" + entryStamps.get(relationshipsName) + "/" + sharedStringsStamp);
+        }
+        return sheetStamps;
+    }
+
+    @Override
+    public void close() {
+        xlsxPackage.revert();
+    }
+
+    @Override
+    protected SheetBuffer readSheet(int index, String sheetName) throws Exception {
+        PackagePart sheetPart = sheetParts.get(index);
+        SheetHandler handler = new SheetHandler(sheetName, sheetPart);
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        XMLReader reader = factory.newSAXParser().getXMLReader();
+        reader.setContentHandler(handler);
+        try (InputStream stream = sheetPart.getInputStream()) {
+            reader.parse(new InputSource(stream));
+        }
+        return handler.builder.build();
+    }
+
+    private synchronized String getSharedString(int index) throws Exception {
+        if (sharedStrings == null) {
+            sharedStrings = new ReadOnlySharedStringsTable(xlsxPackage);
+        }
+        return sharedStrings.getEntryAt(index);
+    }
+
+    private static String resolveHyperlink(PackagePart sheetPart, String relationshipId, String location) {
+        if (relationshipId != null) {
+            try {
+                PackageRelationship relationship = sheetPart.getRelationship(relationshipId);
+                if (relationship != null) {
+                    return relationship.getTargetURI().toString();
+                }
+            }
+            catch (Exception exception) {
+                return location;
+            }
+        }
+        return location;
+    }
+
+    private static int columnIndexOf(String cellReference) {
+        int column = 0;
+        for (int i = 0; i < cellReference.length(); i++) {
+            char symbol = cellReference.charAt(i);
+            if (symbol == '$') continue;
+            if (symbol < 'A' || symbol > 'Z') break;
+            column = column * 26 + (symbol - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    private static int rowIndexOf(String cellReference) {
+        int row = 0;
+        for (int i = 0; i < cellReference.length(); i++) {
+            char symbol = cellReference.charAt(i);
+            if (symbol >= '0' && symbol <= '9') {
+                row = row * 10 + (symbol - '0');
+            }
+        }
+        return row - 1;
+    }
+
+    private class SheetHandler extends DefaultHandler {
+        private final SheetBuffer.Builder builder;
+        private final PackagePart sheetPart;
+        private final StringBuilder text = new StringBuilder();
+        private int rowNum = -1;
+        private int columnIndex = -1;
+        private String cellType;
+        private boolean hasFormula;
+        private String value;
+        private StringBuilder inlineValue;
+        private boolean inValue;
+        private boolean inInlineText;
+        private boolean inPhonetic;
+
+        SheetHandler(String sheetName, PackagePart sheetPart) {
+            this.builder = new SheetBuffer.Builder(sheetName);
+            this.sheetPart = sheetPart;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String rowReference = attributes.getValue("r");
+                    rowNum = rowReference == null ? rowNum + 1 : Integer.parseInt(rowReference) - 1;
+                    columnIndex = -1;
+                    builder.addRow(rowNum);
+                    break;
+                case "c":
+                    String cellReference = attributes.getValue("r");
+                    columnIndex = cellReference == null ? columnIndex + 1 : columnIndexOf(cellReference);
+                    cellType = attributes.getValue("t");
+                    hasFormula = false;
+                    value = null;
+                    inlineValue = null;
+                    break;
+                case "f":
+                    hasFormula = true;
+                    break;
+                case "v":
+                    inValue = true;
+                    text.setLength(0);
+                    break;
+                case "is":
+                    inlineValue = new StringBuilder();
+                    break;
+                case "rPh":
+                    inPhonetic = true;
+                    break;
+                case "t":
+                    if (inlineValue != null && !inPhonetic) {
+                        inInlineText = true;
+                        text.setLength(0);
+                    }
+                    break;
+                case "hyperlink":
+                    addHyperlink(attributes);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                    inValue = false;
+                    value = text.toString();
+                    break;
+                case "t":
+                    if (inInlineText) {
+                        inInlineText = false;
+                        inlineValue.append(text);
+                    }
+                    break;
+                case "rPh":
+                    inPhonetic = false;
+                    break;
+                case "c":
+                    addCell();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue || inInlineText) {
+                text.append(ch, start, length);
+            }
+        }
+
+        // Mirrors XSSFCell.getCellType() and getStringCellValue() for the cell just read
+        private void addCell() {
+            boolean textType = "s".equals(cellType) || "inlineStr".equals(cellType) || "str".equals(cellType);
+            String cellValue;
+            if (hasFormula) {
+                cellValue = textType ? (value == null ? "" : value) : null;
+            }
+            else if ("s".equals(cellType)) {
+                cellValue = value == null ? "" : sharedString(value);
+            }
+            else if ("inlineStr".equals(cellType)) {
+                cellValue = value != null ? value : (inlineValue == null ? "" : inlineValue.toString());
+            }
+            else if ("str".equals(cellType)) {
+                cellValue = value == null ? "" : value;
+            }
+            else if (cellType == null || "n".equals(cellType)) {
+                cellValue = value == null ? "" : null;
+            }
+            else {
+                cellValue = null;
+            }
+            builder.addCell(rowNum, columnIndex, textType && !hasFormula, cellValue);
+        }
+
+        private String sharedString(String index) {
+            try {
+                return getSharedString(Integer.parseInt(index));
+            }
+            catch (Exception exception) {
+                throw new RuntimeException("Shared string '" + index + "' was not read: " + exception.getMessage());
+            }
+        }
+
+        private void addHyperlink(Attributes attributes) {
+            String reference = attributes.getValue("ref");
+            if (reference == null || reference.indexOf(':') >= 0) {
+                return;
+            }
+            final String relationshipId = attributes.getValue(RELATIONSHIPS_NAMESPACE, "id");
+            final String location = attributes.getValue("location");
+            builder.addHyperlink(rowIndexOf(reference), columnIndexOf(reference),
+                    () -> resolveHyperlink(sheetPart, relationshipId, location));
+        }
+    }
+}
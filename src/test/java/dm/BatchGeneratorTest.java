@@ -0,0 +1,65 @@
+package dm;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Every job of a batch must write to its own output directory.
+ */
+public class BatchGeneratorTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void runsJobsWithOwnDirectories() throws Exception {
+        Path base = copyWorkbooks();
+        List<GenerationJob> jobs = BatchGenerator.expandGlob(base, "*.xls*", "Root", "out/{workbook}");
+        assertEquals(2, jobs.size());
+        List<BatchGenerator.JobResult> results = new BatchGenerator(new ClassGenerator(GoldenOutputTest.newSettings()), 2).run(jobs);
+        for (BatchGenerator.JobResult result : results) {
+            assertTrue(result.getError(), result.isSucceeded());
+        }
+        assertTrue(Files.isRegularFile(base.resolve("out/a/Request.java")));
+        assertTrue(Files.isRegularFile(base.resolve("out/b/Request.java")));
+    }
+
+    @Test
+    public void rejectsGlobWithoutPlaceholder() throws Exception {
+        Path base = copyWorkbooks();
+        assertRejected(BatchGenerator.expandGlob(base, "*.xls*", "Root", "out"));
+    }
+
+    @Test
+    public void rejectsManifestLinesWithOneDirectory() throws Exception {
+        Path base = copyWorkbooks();
+        Path manifest = base.resolve("batch.txt");
+        Files.write(manifest, Arrays.asList("a.xlsx ; Root ; out/x", "b.xls ; Root ; out/y/../x/"), StandardCharsets.UTF_8);
+        assertRejected(BatchGenerator.readManifest(manifest));
+    }
+
+    private static void assertRejected(List<GenerationJob> jobs) {
+        try {
+            new BatchGenerator(new ClassGenerator(GoldenOutputTest.newSettings()), 2).run(jobs);
+            fail("Jobs sharing an output directory were run");
+        }
+        catch (IllegalArgumentException exception) {
+            assertTrue(exception.getMessage(), exception.getMessage().contains("is shared by jobs"));
+        }
+    }
+
+    private Path copyWorkbooks() throws Exception {
+        Path base = temporaryFolder.newFolder().toPath();
+        Files.copy(GoldenOutputTest.resource("spec/spec.xlsx"), base.resolve("a.xlsx"));
+        Files.copy(GoldenOutputTest.resource("spec/spec.xls"), base.resolve("b.xls"));
+        return base;
+    }
+}
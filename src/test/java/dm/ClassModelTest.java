@@ -0,0 +1,43 @@
+package dm;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * The class model file is replaced only by a run whose parse succeeded.
+ */
+public class ClassModelTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void failedParseKeepsThePreviousModel() throws Exception {
+        Path model = temporaryFolder.getRoot().toPath().resolve("model.json");
+        Files.write(model, "previous".getBytes(StandardCharsets.UTF_8));
+        GeneratorSettings settings = GoldenOutputTest.newSettings();
+        settings.setClassModelPath(model.toString());
+        ClassGenerator classGenerator = new ClassGenerator(settings);
+        String input = GoldenOutputTest.resource("spec/spec.xlsx").toString();
+
+        try {
+            classGenerator.generate(input, "Root,Missing", temporaryFolder.newFolder().toString());
+            fail("Missing sheet was parsed");
+        }
+        catch (RuntimeException exception) {
+            assertTrue(exception.getMessage(), exception.getMessage().contains("Missing"));
+        }
+        assertEquals("previous", new String(Files.readAllBytes(model), StandardCharsets.UTF_8));
+
+        classGenerator.generate(input, "Root", temporaryFolder.newFolder().toString());
+        String json = new String(Files.readAllBytes(model), StandardCharsets.UTF_8);
+        assertTrue(json, json.contains("\"name\": \"Request\""));
+        assertFalse(Files.exists(model.resolveSibling("model.json.tmp")));
+    }
+}
@@ -0,0 +1,54 @@
+package dm;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compiles generated classes with the system compiler, failing on any error or lint warning,
+ * and loads them.
+ */
+class GeneratedSources {
+    private GeneratedSources() {
+    }
+
+    static ClassLoader compile(Path sourceDirectory, Path classDirectory) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull("Tests need a JDK", compiler);
+        List<File> sources;
+        try (Stream<Path> files = Files.list(sourceDirectory)) {
+            sources = files.filter(file -> file.toString().endsWith(".java")).map(Path::toFile).collect(Collectors.toList());
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<String> options = Arrays.asList("-Xlint:all", "-proc:none", "-d", classDirectory.toString());
+            boolean compiled = compiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(sources)).call();
+            List<String> messages = new ArrayList<>();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() != Diagnostic.Kind.NOTE) {
+                    messages.add(diagnostic.toString());
+                }
+            }
+            assertTrue("Generated classes were not compiled: " + messages, compiled);
+            assertEquals("Generated classes have warnings", new ArrayList<String>(), messages);
+        }
+        return new URLClassLoader(new URL[] {classDirectory.toUri().toURL()}, GeneratedSources.class.getClassLoader());
+    }
+}
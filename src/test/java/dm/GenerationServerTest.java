@@ -0,0 +1,104 @@
+package dm;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the server in process on a free port and talks to it through the client.
+ */
+public class GenerationServerTest {
+    private GenerationServer server;
+    private GenerationClient client;
+
+    @Before
+    public void startServer() {
+        server = new GenerationServer(GoldenOutputTest.newSettings(), 0, 2, 60_000);
+        server.start();
+        client = new GenerationClient(server.getPort());
+    }
+
+    @After
+    public void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    public void generatesAndCachesSchema() throws Exception {
+        GenerationClient.Result first = client.generate(GoldenOutputTest.resource("spec/spec.xlsx"), "Root");
+        assertFalse(first.isSchemaCacheHit());
+        assertEquals(4, first.getClassesCreated());
+        GoldenOutputTest.assertGolden(GoldenOutputTest.readArchive(new ByteArrayInputStream(first.getArchive())));
+
+        GenerationClient.Result second = client.generate(GoldenOutputTest.resource("spec/spec.xlsx"), "Root");
+        assertTrue(second.isSchemaCacheHit());
+        assertArrayEquals(first.getArchive(), second.getArchive());
+        assertTrue(client.metrics().contains("\"requestsSucceeded\": 2"));
+    }
+
+    @Test
+    public void appliesRequestOptions() throws Exception {
+        Map<String, String> options = new HashMap<>();
+        options.put("stax", "true");
+        options.put("primitives", "list");
+        GenerationClient.Result rendered = client.generate(GoldenOutputTest.resource("spec/spec.xlsx"), "Root", false, options);
+        Map<String, String> classes = GoldenOutputTest.readArchive(new ByteArrayInputStream(rendered.getArchive()));
+        assertTrue(classes.keySet().toString(), classes.containsKey("IntList.java"));
+        assertTrue(classes.keySet().toString(), classes.containsKey("RequestXmlMarshaller.java"));
+        assertTrue(classes.get("Request.java"), classes.get("Request.java").contains("public IntList count;"));
+
+        // The schema parsed for other options is replayed with the server's own
+        GenerationClient.Result plain = client.generate(GoldenOutputTest.resource("spec/spec.xlsx"), "Root");
+        assertTrue(plain.isSchemaCacheHit());
+        GoldenOutputTest.assertGolden(GoldenOutputTest.readArchive(new ByteArrayInputStream(plain.getArchive())));
+    }
+
+    @Test
+    public void rejectsUnknownOptionValues() throws IOException {
+        assertEquals(400, status("/generate?sheet=Root&primitives=set", "POST"));
+        assertEquals(400, status("/generate?sheet=Root&dedup=yes", "POST"));
+    }
+
+    @Test
+    public void reportsParseErrors() throws Exception {
+        try {
+            client.generate(GoldenOutputTest.resource("spec/spec.xlsx"), "Missing");
+            fail("Missing sheet was generated");
+        }
+        catch (RuntimeException exception) {
+            assertTrue(exception.getMessage(), exception.getMessage().contains("422"));
+        }
+    }
+
+    @Test
+    public void answersOnlyExactPaths() throws IOException {
+        assertEquals(404, status("/generate/other", "POST"));
+        assertEquals(404, status("/metricsx", "GET"));
+        assertEquals(405, status("/generate", "GET"));
+        assertEquals(200, status("/metrics", "GET"));
+    }
+
+    private int status(String path, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+        try {
+            connection.setRequestMethod(method);
+            if ("POST".equals(method)) {
+                connection.setDoOutput(true);
+                connection.getOutputStream().close();
+            }
+            return connection.getResponseCode();
+        }
+        finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package dm;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Generates the classes of the spec workbook in every input and output mode and compares
+ * them byte for byte with spec/classes, the output of the sequential workbook model. It is
+ * the original parser's output except for repeated primitive fields, which are declared as
+ * boxed lists such as List<Integer> instead of List<int>.
+ */
+public class GoldenOutputTest {
+    private static final String SHEET = "Root";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void workbookModel() throws Exception {
+        assertGolden(generate(newSettings(), "spec/spec.xlsx"));
+        assertGolden(generate(newSettings(), "spec/spec.xls"));
+    }
+
+    @Test
+    public void streamingInput() throws Exception {
+        GeneratorSettings settings = newSettings();
+        settings.setStreamingInput(true);
+        assertGolden(generate(settings, "spec/spec.xlsx"));
+        assertGolden(generate(settings, "spec/spec.xls"));
+    }
+
+    @Test
+    public void csvDirectory() throws Exception {
+        assertGolden(generate(newSettings(), "spec/csv"));
+    }
+
+    @Test
+    public void parallelParse() throws Exception {
+        GeneratorSettings settings = newSettings();
+        settings.setParallelism(4);
+        assertGolden(generate(settings, "spec/spec.xlsx"));
+        settings.setStreamingInput(true);
+        assertGolden(generate(settings, "spec/spec.xls"));
+    }
+
+    @Test
+    public void asyncOutput() throws Exception {
+        GeneratorSettings settings = newSettings();
+        settings.setAsyncOutput(true);
+        assertGolden(generate(settings, "spec/spec.xlsx"));
+    }
+
+    @Test
+    public void incrementalOutput() throws Exception {
+        GeneratorSettings settings = newSettings();
+        settings.setIncremental(true);
+        settings.setPruneStale(true);
+        Path outDir = temporaryFolder.newFolder().toPath();
+        ClassGenerator classGenerator = new ClassGenerator(settings);
+        classGenerator.generate(resource("spec/spec.xlsx").toString(), SHEET, outDir.toString());
+        assertGolden(readClasses(outDir));
+        classGenerator.generate(resource("spec/spec.xlsx").toString(), SHEET, outDir.toString());
+        assertGolden(readClasses(outDir));
+    }
+
+    @Test
+    public void schemaCacheReplay() throws Exception {
+        GeneratorSettings settings = newSettings();
+        settings.setSchemaCacheDirectory(temporaryFolder.newFolder().getPath());
+        ClassGenerator classGenerator = new ClassGenerator(settings);
+        for (boolean cached : new boolean[] {false, true}) {
+            Path outDir = temporaryFolder.newFolder().toPath();
+            RunMetrics metrics = classGenerator.generate(resource("spec/spec.xlsx").toString(), SHEET, outDir.toString());
+            assertEquals(cached, metrics.isSchemaCacheHit());
+            assertGolden(readClasses(outDir));
+        }
+    }
+
+    @Test
+    public void outputArchive() throws Exception {
+        Path archive = temporaryFolder.getRoot().toPath().resolve("classes.zip");
+        GeneratorSettings settings = newSettings();
+        settings.setOutputArchivePath(archive.toString());
+        new ClassGenerator(settings).generate(resource("spec/spec.xlsx").toString(), SHEET, null);
+        assertGolden(readArchive(Files.newInputStream(archive)));
+    }
+
+    static GeneratorSettings newSettings() {
+        GeneratorSettings settings = new GeneratorSettings();
+        settings.setNameReplacementDict(Application.loadDictionary("name_replacement_dictionary.js"));
+        settings.setTypeReplacementDict(Application.loadDictionary("type_replacement_dictionary.js"));
+        settings.setImportsDict(Application.loadDictionary("imports_dictionary.js"));
+        return settings;
+    }
+
+    private Map<String, String> generate(GeneratorSettings settings, String input) throws Exception {
+        Path outDir = temporaryFolder.newFolder().toPath();
+        new ClassGenerator(settings).generate(resource(input).toString(), SHEET, outDir.toString());
+        return readClasses(outDir);
+    }
+
+    static void assertGolden(Map<String, String> classes) throws Exception {
+        assertEquals(readClasses(resource("spec/classes")), classes);
+    }
+
+    private static Map<String, String> readClasses(Path directory) throws IOException {
+        Map<String, String> classes = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(".java")) {
+                    classes.put(file.getFileName().toString(), new String(Files.readAllBytes(file), "UTF-8"));
+                }
+            }
+        }
+        assertFalse("No classes in " + directory, classes.isEmpty());
+        return classes;
+    }
+
+    static Map<String, String> readArchive(InputStream in) throws IOException {
+        Map<String, String> classes = new TreeMap<>();
+        try (ZipInputStream zip = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                classes.put(entry.getName(), readFully(zip));
+            }
+        }
+        return classes;
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return new String(bytes.toByteArray(), "UTF-8");
+    }
+
+    static Path resource(String name) throws URISyntaxException {
+        return Paths.get(GoldenOutputTest.class.getResource("/" + name).toURI());
+    }
+}
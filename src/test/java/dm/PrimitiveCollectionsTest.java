@@ -0,0 +1,103 @@
+package dm;
+
+import dm.creators.PrimitiveCollections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * The spec classes compile with repeated primitives declared as arrays and as generated list
+ * classes, and the generated list classes behave like a growable array.
+ */
+public class PrimitiveCollectionsTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void declaresArrays() throws Exception {
+        Path sources = generate(PrimitiveCollections.ARRAY);
+        assertEquals(Arrays.asList("Address.java", "Client.java", "Document.java", "Request.java"), fileNames(sources));
+        ClassLoader classes = GeneratedSources.compile(sources, temporaryFolder.newFolder().toPath());
+        assertEquals(int[].class, classes.loadClass("Request").getField("count").getType());
+        assertEquals(List.class, classes.loadClass("Request").getField("client").getType());
+    }
+
+    @Test
+    public void declaresListClasses() throws Exception {
+        Path sources = generate(PrimitiveCollections.LIST);
+        assertEquals(Arrays.asList("Address.java", "Client.java", "Document.java", "IntList.java", "Request.java"), fileNames(sources));
+        ClassLoader classes = GeneratedSources.compile(sources, temporaryFolder.newFolder().toPath());
+        assertEquals(classes.loadClass("IntList"), classes.loadClass("Request").getField("count").getType());
+        assertEquals(List.class, classes.loadClass("Request").getField("client").getType());
+    }
+
+    @Test
+    public void listClassesGrow() throws Exception {
+        Path sources = temporaryFolder.newFolder().toPath();
+        for (String type : Arrays.asList("int", "long", "short", "byte", "float", "double", "boolean", "char")) {
+            StringBuilder content = new StringBuilder();
+            PrimitiveCollections.renderList(type, content);
+            Files.write(sources.resolve(PrimitiveCollections.listClassName(type) + ".java"), content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        ClassLoader classes = GeneratedSources.compile(sources, temporaryFolder.newFolder().toPath());
+
+        Class<?> intList = classes.loadClass("IntList");
+        Object list = intList.getConstructor().newInstance();
+        assertEquals(true, intList.getMethod("isEmpty").invoke(list));
+        for (int i = 0; i < 20; i++) {
+            intList.getMethod("add", int.class).invoke(list, i * 10);
+        }
+        intList.getMethod("set", int.class, int.class).invoke(list, 19, -1);
+        assertEquals(20, intList.getMethod("size").invoke(list));
+        assertEquals(90, intList.getMethod("get", int.class).invoke(list, 9));
+        int[] values = (int[]) intList.getMethod("toArray").invoke(list);
+        assertEquals(20, values.length);
+        assertEquals(-1, values[19]);
+        assertOutOfBounds(intList.getMethod("get", int.class), list, 20);
+        assertOutOfBounds(intList.getMethod("get", int.class), list, -1);
+        intList.getMethod("clear").invoke(list);
+        assertEquals(0, intList.getMethod("size").invoke(list));
+        assertOutOfBounds(intList.getMethod("get", int.class), list, 0);
+
+        Class<?> charList = classes.loadClass("CharList");
+        Object chars = charList.getConstructor().newInstance();
+        charList.getMethod("add", char.class).invoke(chars, 'x');
+        assertArrayEquals(new char[] {'x'}, (char[]) charList.getMethod("toArray").invoke(chars));
+    }
+
+    private Path generate(PrimitiveCollections primitiveCollections) throws Exception {
+        GeneratorSettings settings = GoldenOutputTest.newSettings();
+        settings.setPrimitiveCollections(primitiveCollections);
+        Path sources = temporaryFolder.newFolder().toPath();
+        new ClassGenerator(settings).generate(GoldenOutputTest.resource("spec/spec.xlsx").toString(), "Root", sources.toString());
+        return sources;
+    }
+
+    private static List<String> fileNames(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void assertOutOfBounds(Method method, Object target, int index) throws Exception {
+        try {
+            method.invoke(target, index);
+            fail("Index " + index + " was read");
+        }
+        catch (InvocationTargetException exception) {
+            assertTrue(String.valueOf(exception.getCause()), exception.getCause() instanceof IndexOutOfBoundsException);
+        }
+    }
+}
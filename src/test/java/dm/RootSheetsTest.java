@@ -0,0 +1,72 @@
+package dm;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Several sheet names and patterns in one target: the spec workbook has Root, which references
+ * Client Sheet, which references Document. A pattern keeps the matched sheets no parsed sheet
+ * references, and a class shared between roots is written once.
+ */
+public class RootSheetsTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void everySheetSelectsTheRoot() throws Exception {
+        assertEquals(Arrays.asList("Address.java", "Client.java", "Document.java", "Request.java"), generate("*"));
+    }
+
+    @Test
+    public void repeatedNameIsParsedOnce() throws Exception {
+        assertEquals(Arrays.asList("Address.java", "Client.java", "Document.java", "Request.java"), generate("Root,root"));
+    }
+
+    @Test
+    public void patternCountsReferencesOfParsedSheetsOnly() throws Exception {
+        // Root references Client Sheet but is not matched, so Client Sheet is a root here
+        assertEquals(Arrays.asList("Client.java", "Document.java"), generate("C*"));
+    }
+
+    @Test
+    public void sharedClassIsWrittenOnce() throws Exception {
+        for (String target : Arrays.asList("Root,Client Sheet", "Client Sheet,Root", "Document,*")) {
+            Path archive = temporaryFolder.newFolder().toPath().resolve("classes.zip");
+            GeneratorSettings settings = GoldenOutputTest.newSettings();
+            settings.setOutputArchivePath(archive.toString());
+            RunMetrics metrics = new ClassGenerator(settings).generate(GoldenOutputTest.resource("spec/spec.xlsx").toString(), target, null);
+            assertEquals(target, 4, metrics.getClassesCreated());
+            List<String> entries = new ArrayList<>();
+            try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(archive))) {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    entries.add(entry.getName());
+                }
+            }
+            assertEquals(target, 4, entries.size());
+            GoldenOutputTest.assertGolden(GoldenOutputTest.readArchive(Files.newInputStream(archive)));
+        }
+    }
+
+    private List<String> generate(String target) throws Exception {
+        Path outDir = temporaryFolder.newFolder().toPath();
+        new ClassGenerator(GoldenOutputTest.newSettings()).generate(GoldenOutputTest.resource("spec/spec.xlsx").toString(), target, outDir.toString());
+        List<String> files = new ArrayList<>();
+        for (String file : outDir.toFile().list()) {
+            files.add(file);
+        }
+        files.sort(null);
+        return files;
+    }
+}
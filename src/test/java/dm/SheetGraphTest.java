@@ -0,0 +1,70 @@
+package dm;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Roots and cycles of the sheet reference graph, including chains deeper than a recursive
+ * traversal could follow on a default thread stack.
+ */
+public class SheetGraphTest {
+
+    @Test
+    public void findsRootsInCandidateOrder() {
+        SheetGraph graph = graph("Root", "Client", "Document", "Other");
+        graph.addReference("Root", "client");
+        graph.addReference("Client", "Document");
+        assertEquals(Arrays.asList("Root", "Other"), graph.findRoots(Arrays.asList("Root", "Client", "Document", "Other")));
+        assertTrue(graph.findCycles().isEmpty());
+    }
+
+    @Test
+    public void reportsCyclesAndKeepsCyclicCandidates() {
+        SheetGraph graph = graph("Root", "A", "B", "C", "D");
+        graph.addReference("Root", "A");
+        graph.addReference("A", "B");
+        graph.addReference("B", "A");
+        graph.addReference("C", "D");
+        graph.addReference("D", "C");
+        assertEquals(Arrays.asList(Arrays.asList("A", "B", "A"), Arrays.asList("C", "D", "C")), graph.findCycles());
+        assertEquals(Arrays.asList("Root", "C"), graph.findRoots(Arrays.asList("Root", "A", "B", "C", "D")));
+    }
+
+    @Test
+    public void selfReferenceIsACycle() {
+        SheetGraph graph = graph("Node");
+        graph.addReference("Node", "NODE");
+        assertEquals(Collections.singletonList(Arrays.asList("Node", "Node")), graph.findCycles());
+    }
+
+    @Test
+    public void followsDeepChains() {
+        int depth = 200_000;
+        SheetGraph graph = new SheetGraph();
+        for (int i = 0; i < depth; i++) {
+            assertTrue(graph.addSheet("Sheet" + i));
+        }
+        for (int i = 1; i < depth; i++) {
+            graph.addReference("Sheet" + (i - 1), "Sheet" + i);
+        }
+        graph.addReference("Sheet" + (depth - 1), "Sheet0");
+        assertFalse(graph.addSheet("SHEET0"));
+        List<List<String>> cycles = graph.findCycles();
+        assertEquals(1, cycles.size());
+        assertEquals(depth + 1, cycles.get(0).size());
+        assertEquals(Collections.singletonList("Sheet0"), graph.findRoots(Arrays.asList("Sheet0", "Sheet1")));
+    }
+
+    private static SheetGraph graph(String... sheetNames) {
+        SheetGraph graph = new SheetGraph();
+        for (String sheetName : sheetNames) {
+            graph.addSheet(sheetName);
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,60 @@
+package dm;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * The character table fast path must accept exactly the names the regex accepts.
+ */
+public class VariableNameMatcherTest {
+    private static final String[] PATTERNS = {
+            "^[a-zA-ZсС][a-zA-Z0-9_&сС]*",
+            "[a-z][a-z0-9]*",
+            "^[a-z][a-z0-9]*$",
+            "^[_a-zA-Z][-_a-zA-Z0-9]*",
+            "^[a-z-][a-z-9]*",
+            "^[a.][.b&]*",
+            "^[a-zA-Z][a-zA-Z0-9]+",
+            "^[a-z&&[^x]][a-z]*",
+            "^[\\w][\\w$]*",
+            "[A-Z]\\w*",
+    };
+    private static final String ALPHABET = "azAZmM09_-.&$сСЖ \t\né";
+
+    @Test
+    public void matchesLikeRegex() {
+        Random random = new Random(7);
+        for (String regex : PATTERNS) {
+            Pattern pattern = Pattern.compile(regex);
+            VariableNameMatcher matcher = new VariableNameMatcher(regex);
+            for (int i = 0; i < 20000; i++) {
+                String value = randomName(random);
+                assertEquals("'" + value + "' against " + regex, pattern.matcher(value).matches(), matcher.matches(value));
+            }
+        }
+    }
+
+    @Test
+    public void matchesTypicalNames() {
+        VariableNameMatcher matcher = new VariableNameMatcher(new GeneratorSettings().getValidVariableNamePattern());
+        assertTrue(matcher.matches("client"));
+        assertTrue(matcher.matches("сlient_2"));
+        assertFalse(matcher.matches(""));
+        assertFalse(matcher.matches("2client"));
+        assertFalse(matcher.matches("client name"));
+        assertFalse(matcher.matches("Поле"));
+    }
+
+    private static String randomName(Random random) {
+        int length = random.nextInt(6);
+        StringBuilder name = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            name.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return name.toString();
+    }
+}
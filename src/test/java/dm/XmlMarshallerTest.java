@@ -0,0 +1,105 @@
+package dm;
+
+import dm.creators.PrimitiveCollections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compiles the spec classes with their marshallers in every primitive collection mode and
+ * reads and writes a document with repeated elements and an unknown element.
+ */
+public class XmlMarshallerTest {
+    private static final String INPUT = "<request>"
+            + "<id>r-1</id>"
+            + "<client><name>First</name><document><number>7</number><issued>2020-01-02</issued></document></client>"
+            + "<unknown><nested>skipped</nested><client><name>Hidden</name></client></unknown>"
+            + "<client><name>Second</name></client>"
+            + "<address><city>Riga</city><street>Main</street></address>"
+            + "<flag>1</flag>"
+            + "<count>3</count><count> 5 </count><count>8</count>"
+            + "</request>";
+    private static final String OUTPUT = "<request>"
+            + "<id>r-1</id>"
+            + "<client><name>First</name><document><number>7</number><issued>2020-01-02</issued></document></client>"
+            + "<client><name>Second</name></client>"
+            + "<address><city>Riga</city><street>Main</street></address>"
+            + "<flag>true</flag>"
+            + "<count>3</count><count>5</count><count>8</count>"
+            + "</request>";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void roundTripsBoxedLists() throws Exception {
+        ClassLoader classes = generate(PrimitiveCollections.BOXED);
+        Object request = read(classes);
+        assertEquals(2, ((List<?>) field(request, "client")).size());
+        assertEquals(Arrays.asList(3, 5, 8), field(request, "count"));
+        assertEquals(OUTPUT, write(classes, request));
+    }
+
+    @Test
+    public void roundTripsArrays() throws Exception {
+        ClassLoader classes = generate(PrimitiveCollections.ARRAY);
+        Object request = read(classes);
+        assertArrayEquals(new int[] {3, 5, 8}, (int[]) field(request, "count"));
+        assertEquals(OUTPUT, write(classes, request));
+    }
+
+    @Test
+    public void roundTripsPrimitiveLists() throws Exception {
+        ClassLoader classes = generate(PrimitiveCollections.LIST);
+        Object request = read(classes);
+        Object count = field(request, "count");
+        assertArrayEquals(new int[] {3, 5, 8}, (int[]) count.getClass().getMethod("toArray").invoke(count));
+        assertEquals(OUTPUT, write(classes, request));
+    }
+
+    private ClassLoader generate(PrimitiveCollections primitiveCollections) throws Exception {
+        GeneratorSettings settings = GoldenOutputTest.newSettings();
+        settings.setXmlMarshallers(true);
+        settings.setPrimitiveCollections(primitiveCollections);
+        Path sources = temporaryFolder.newFolder().toPath();
+        new ClassGenerator(settings).generate(GoldenOutputTest.resource("spec/spec.xlsx").toString(), "Root", sources.toString());
+        return GeneratedSources.compile(sources, temporaryFolder.newFolder().toPath());
+    }
+
+    private static Object read(ClassLoader classes) throws Exception {
+        XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(INPUT));
+        reader.nextTag();
+        Method read = classes.loadClass("RequestXmlMarshaller").getMethod("read", XMLStreamReader.class);
+        Object request = read.invoke(null, reader);
+        assertEquals("request", reader.getLocalName());
+        return request;
+    }
+
+    private static String write(ClassLoader classes, Object request) throws Exception {
+        StringWriter out = new StringWriter();
+        XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+        Class<?> requestClass = classes.loadClass("Request");
+        classes.loadClass("RequestXmlMarshaller")
+                .getMethod("write", XMLStreamWriter.class, String.class, requestClass)
+                .invoke(null, writer, "request", request);
+        writer.close();
+        return out.toString();
+    }
+
+    private static Object field(Object value, String name) throws Exception {
+        return value.getClass().getField(name).get(value);
+    }
+}
@@ -0,0 +1,87 @@
+package dm.creators;
+
+import dm.ClassGenerator;
+import dm.GeneratorSettings;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Entry order and time, the jar manifest, replacement of the previous archive only after a
+ * complete run, and identical archives from the sync and async writers.
+ */
+public class ArchiveClassFileStoreTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void writesJarWithManifestFirst() throws Exception {
+        Path base = temporaryFolder.getRoot().toPath();
+        Path archivePath = base.resolve("classes.jar");
+        ArchiveClassFileStore store = new ArchiveClassFileStore(archivePath, base);
+        store.store(base.resolve("dm/B.java"), content("class B {}"));
+        store.store(base.resolve("dm/A.java"), content("class A {}"));
+        store.markRunComplete();
+        store.close();
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(archivePath))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+                assertEquals(ArchiveClassFileStore.ENTRY_TIME, entry.getTime());
+            }
+        }
+        assertEquals(Arrays.asList(JarFile.MANIFEST_NAME, "dm/B.java", "dm/A.java"), names);
+        assertFalse(Files.exists(base.resolve("classes.jar.tmp")));
+    }
+
+    @Test
+    public void keepsPreviousArchiveWhenRunIsIncomplete() throws Exception {
+        Path base = temporaryFolder.getRoot().toPath();
+        Path archivePath = base.resolve("classes.zip");
+        Files.write(archivePath, "previous".getBytes(StandardCharsets.UTF_8));
+        ArchiveClassFileStore store = new ArchiveClassFileStore(archivePath, base);
+        store.store(base.resolve("A.java"), content("class A {}"));
+        store.close();
+
+        assertEquals("previous", new String(Files.readAllBytes(archivePath), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(base.resolve("classes.zip.tmp")));
+    }
+
+    @Test
+    public void syncAndAsyncWritersGiveSameArchive() throws Exception {
+        byte[] sync = generateArchive(false);
+        byte[] async = generateArchive(true);
+        assertArrayEquals(sync, async);
+        assertArrayEquals(sync, generateArchive(false));
+    }
+
+    private byte[] generateArchive(boolean asyncOutput) throws Exception {
+        Path archivePath = temporaryFolder.newFolder().toPath().resolve("classes.jar");
+        GeneratorSettings settings = new GeneratorSettings();
+        settings.setAsyncOutput(asyncOutput);
+        settings.setOutputArchivePath(archivePath.toString());
+        Path workbook = Paths.get(getClass().getResource("/spec/spec.xlsx").toURI());
+        new ClassGenerator(settings).generate(workbook.toString(), "Root", null);
+        return Files.readAllBytes(archivePath);
+    }
+
+    private static ByteBuffer content(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
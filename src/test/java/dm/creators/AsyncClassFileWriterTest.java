@@ -0,0 +1,70 @@
+package dm.creators;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+/**
+ * The store is closed by {@link AsyncClassFileWriter#close()} also when files were not written.
+ */
+public class AsyncClassFileWriterTest {
+
+    @Test
+    public void closesStoreAfterWriteFailures() {
+        FailingStore store = new FailingStore(false);
+        AsyncClassFileWriter writer = new AsyncClassFileWriter(store, 4, 2);
+        writer.write(Paths.get("A.java"), "class A {}");
+        try {
+            writer.close();
+            fail("Write failure was not reported");
+        }
+        catch (RuntimeException exception) {
+            assertTrue(exception.getMessage(), exception.getMessage().contains("1 class file(s) were not written"));
+            assertEquals(0, exception.getSuppressed().length);
+        }
+        assertTrue(store.closed);
+    }
+
+    @Test
+    public void attachesStoreCloseFailure() {
+        FailingStore store = new FailingStore(true);
+        AsyncClassFileWriter writer = new AsyncClassFileWriter(store, 4, 2);
+        writer.write(Paths.get("A.java"), "class A {}");
+        try {
+            writer.close();
+            fail("Write failure was not reported");
+        }
+        catch (RuntimeException exception) {
+            assertTrue(exception.getMessage(), exception.getMessage().contains("disk full"));
+            assertEquals(1, exception.getSuppressed().length);
+            assertEquals("archive not closed", exception.getSuppressed()[0].getMessage());
+        }
+        assertTrue(store.closed);
+    }
+
+    private static class FailingStore implements ClassFileStore {
+        private final boolean failOnClose;
+        private volatile boolean closed;
+
+        FailingStore(boolean failOnClose) {
+            this.failOnClose = failOnClose;
+        }
+
+        @Override
+        public boolean store(Path filePath, ByteBuffer content) {
+            throw new RuntimeException("File '" + filePath + "' was not written: disk full");
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            if (failOnClose) {
+                throw new RuntimeException("archive not closed");
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package dm.creators;
+
+import dm.FieldInfo;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FanOutClassCreatorTest {
+    private static final List<FieldInfo> FIELDS = Collections.singletonList(new FieldInfo("id", "String", MultiplicityType.ONE));
+
+    @Test
+    public void optionalSinkFailureIsIsolated() {
+        List<String> created = Collections.synchronizedList(new ArrayList<>());
+        CountingSink failing = new CountingSink() {
+            @Override
+            public void create(String classType, Collection<FieldInfo> fields) {
+                throw new IllegalStateException("disk full");
+            }
+        };
+        try (FanOutClassCreator fanOut = new FanOutClassCreator(2)
+                .addSink("classes", (classType, fields) -> created.add(classType), true)
+                .addSink("model", failing, false)) {
+            for (int i = 0; i < 10; i++) {
+                fanOut.create("Class" + i, FIELDS);
+            }
+        }
+        assertEquals(10, created.size());
+        assertEquals("Class9", created.get(9));
+        assertTrue(failing.closed);
+    }
+
+    @Test
+    public void requiredSinkFailureStopsTheParse() throws Exception {
+        CountDownLatch failed = new CountDownLatch(1);
+        CountingSink optional = new CountingSink();
+        FanOutClassCreator fanOut = new FanOutClassCreator(2)
+                .addSink("classes", (classType, fields) -> {
+                    failed.countDown();
+                    throw new IllegalStateException("disk full");
+                }, true)
+                .addSink("console", optional, false);
+        fanOut.create("First", FIELDS);
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+        try {
+            for (int i = 0; i < 1000; i++) {
+                fanOut.create("Class" + i, FIELDS);
+                Thread.sleep(10);
+            }
+            fail("Classes were created after the required sink failed");
+        }
+        catch (RuntimeException exception) {
+            assertTrue(exception.getMessage(), exception.getMessage().contains("Class sink 'classes' failed"));
+        }
+        try {
+            fanOut.close();
+            fail("Required sink failure was not thrown on close");
+        }
+        catch (RuntimeException exception) {
+            assertTrue(exception.getMessage(), exception.getMessage().contains("disk full"));
+        }
+        assertTrue(optional.closed);
+    }
+
+    @Test
+    public void slowSinkBlocksOnlyWhenItsQueueIsFull() throws Exception {
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch slowReleased = new CountDownLatch(1);
+        CountDownLatch fastCreated = new CountDownLatch(3);
+        CountingSink slow = new CountingSink() {
+            @Override
+            public void create(String classType, Collection<FieldInfo> fields) {
+                slowStarted.countDown();
+                try {
+                    slowReleased.await();
+                }
+                catch (InterruptedException exception) {
+                    throw new IllegalStateException(exception);
+                }
+                super.create(classType, fields);
+            }
+        };
+        CountingSink fast = new CountingSink() {
+            @Override
+            public void create(String classType, Collection<FieldInfo> fields) {
+                super.create(classType, fields);
+                fastCreated.countDown();
+            }
+        };
+        FanOutClassCreator fanOut = new FanOutClassCreator(2)
+                .addSink("classes", fast, true)
+                .addSink("console", slow, false);
+
+        // One class is taken by the slow sink, two more fill its queue without blocking
+        fanOut.create("Class0", FIELDS);
+        assertTrue(slowStarted.await(10, TimeUnit.SECONDS));
+        fanOut.create("Class1", FIELDS);
+        fanOut.create("Class2", FIELDS);
+        assertTrue("Fast sink waited for the slow one", fastCreated.await(10, TimeUnit.SECONDS));
+
+        Thread producer = new Thread(() -> fanOut.create("Class3", FIELDS));
+        producer.start();
+        producer.join(300);
+        assertTrue("Producer did not wait for the full queue", producer.isAlive());
+
+        slowReleased.countDown();
+        producer.join(10_000);
+        assertFalse(producer.isAlive());
+        fanOut.close();
+        assertEquals(Arrays.asList("Class0", "Class1", "Class2", "Class3"), fast.created);
+        assertEquals(Arrays.asList("Class0", "Class1", "Class2", "Class3"), slow.created);
+        assertTrue(slow.closed && fast.closed);
+    }
+
+    private static class CountingSink implements ClassCreator {
+        final List<String> created = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean closed;
+
+        @Override
+        public void create(String classType, Collection<FieldInfo> fields) {
+            created.add(classType);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package dm.creators;
+
+import dm.FieldInfo;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Classes are compiled only when the creator is closed after a complete run.
+ */
+public class InMemoryClassCreatorTest {
+    // References a class the interrupted run never created
+    private static final List<FieldInfo> FIELDS = Collections.singletonList(
+            new FieldInfo("client", "Client", MultiplicityType.ONE));
+
+    @Test
+    public void compilesAfterCompleteRun() {
+        InMemoryClassCreator classCreator = newClassCreator();
+        classCreator.create("Client", Collections.<FieldInfo>emptyList());
+        classCreator.create("Request", FIELDS);
+        classCreator.markRunComplete();
+        classCreator.close();
+        assertEquals(2, classCreator.getClassBytes().size());
+    }
+
+    @Test
+    public void skipsCompilationOfIncompleteRun() {
+        InMemoryClassCreator classCreator = newClassCreator();
+        classCreator.create("Request", FIELDS);
+        classCreator.close();
+        try {
+            classCreator.getClassBytes();
+            fail("Classes of an incomplete run were compiled");
+        }
+        catch (IllegalStateException exception) {
+            assertTrue(exception.getMessage(), exception.getMessage().contains("complete run"));
+        }
+    }
+
+    private static InMemoryClassCreator newClassCreator() {
+        return new InMemoryClassCreator(new FieldDictionary(new HashMap<>(), new HashMap<>(), new HashMap<>()));
+    }
+}
@@ -0,0 +1,46 @@
+package dm.creators;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruning deletes the stale classes of the manifest and nothing outside the output directory.
+ */
+public class IncrementalClassFileStoreTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void prunesOnlyInsideTheOutputDirectory() throws Exception {
+        Path base = temporaryFolder.getRoot().toPath();
+        Path outDir = Files.createDirectories(base.resolve("out"));
+        Path outside = Files.write(base.resolve("outside.txt"), "keep".getBytes(StandardCharsets.UTF_8));
+        Path stale = Files.write(outDir.resolve("Old.java"), "class Old {}".getBytes(StandardCharsets.UTF_8));
+        Files.write(outDir.resolve(IncrementalClassFileStore.MANIFEST_FILE_NAME), Arrays.asList(
+                "# xml-to-class-parser manifest v1",
+                "00 Old.java",
+                "00 ../outside.txt",
+                "00 sub/../../outside.txt",
+                "00 " + outside.toAbsolutePath(),
+                "00 ."), StandardCharsets.UTF_8);
+
+        IncrementalClassFileStore store = new IncrementalClassFileStore(outDir.toString(), true);
+        store.store(outDir.resolve("New.java"), ByteBuffer.wrap("class New {}".getBytes(StandardCharsets.UTF_8)));
+        store.markRunComplete();
+        store.close();
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(outside));
+        assertTrue(Files.isDirectory(outDir));
+        assertTrue(Files.exists(outDir.resolve("New.java")));
+    }
+}
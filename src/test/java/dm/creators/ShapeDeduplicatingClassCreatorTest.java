@@ -0,0 +1,75 @@
+package dm.creators;
+
+import dm.FieldInfo;
+import dm.RunMetrics;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ShapeDeduplicatingClassCreatorTest {
+    private static final FieldInfo ID = new FieldInfo("id", "String", MultiplicityType.ONE);
+    private static final FieldInfo NAME = new FieldInfo("name", "String", MultiplicityType.ONE);
+
+    @Test
+    public void mergesClassesWithFieldsInTheSameOrder() {
+        Map<String, List<FieldInfo>> created = new LinkedHashMap<>();
+        RunMetrics metrics = new RunMetrics();
+        try (ClassCreator classCreator = new ShapeDeduplicatingClassCreator(collect(created), metrics)) {
+            classCreator.create("Person", Arrays.asList(ID, NAME));
+            classCreator.create("Client", Arrays.asList(ID, NAME));
+            classCreator.create("Owner", Collections.singletonList(
+                    new FieldInfo("client", "Client", MultiplicityType.ONE, "Client")));
+        }
+        assertEquals(Arrays.asList("Person", "Owner"), new ArrayList<>(created.keySet()));
+        assertEquals("Person", created.get("Owner").get(0).getType());
+        assertEquals(1, metrics.getClassesMerged());
+    }
+
+    // Field order is the element order of the bound XML
+    @Test
+    public void keepsClassesWithFieldsInAnotherOrder() {
+        Map<String, List<FieldInfo>> created = new LinkedHashMap<>();
+        RunMetrics metrics = new RunMetrics();
+        try (ClassCreator classCreator = new ShapeDeduplicatingClassCreator(collect(created), metrics)) {
+            classCreator.create("Person", Arrays.asList(ID, NAME));
+            classCreator.create("Client", Arrays.asList(NAME, ID));
+        }
+        assertEquals(Arrays.asList("Person", "Client"), new ArrayList<>(created.keySet()));
+        assertEquals(0, metrics.getClassesMerged());
+    }
+
+    @Test
+    public void passesClassesOnWhenCreated() {
+        Map<String, List<FieldInfo>> created = new LinkedHashMap<>();
+        try (ClassCreator classCreator = new ShapeDeduplicatingClassCreator(collect(created), new RunMetrics())) {
+            classCreator.create("Person", Arrays.asList(ID, NAME));
+            assertEquals(Collections.singletonList("Person"), new ArrayList<>(created.keySet()));
+            classCreator.create("Client", Arrays.asList(ID, NAME));
+            classCreator.create("Owner", Collections.singletonList(new FieldInfo("client", "Client", MultiplicityType.ONE)));
+            assertEquals(Arrays.asList("Person", "Owner"), new ArrayList<>(created.keySet()));
+            assertEquals("Person", created.get("Owner").get(0).getType());
+        }
+    }
+
+    // In a reference cycle a class can be referenced by one passed on before it
+    @Test
+    public void keepsClassesReferencedBeforeTheyWereCreated() {
+        Map<String, List<FieldInfo>> created = new LinkedHashMap<>();
+        RunMetrics metrics = new RunMetrics();
+        try (ClassCreator classCreator = new ShapeDeduplicatingClassCreator(collect(created), metrics)) {
+            classCreator.create("Person", Arrays.asList(ID, NAME));
+            classCreator.create("Owner", Collections.singletonList(new FieldInfo("client", "Client", MultiplicityType.ONE)));
+            classCreator.create("Client", Arrays.asList(ID, NAME));
+            classCreator.create("Agent", Arrays.asList(ID, NAME));
+        }
+        assertEquals(Arrays.asList("Person", "Owner", "Client"), new ArrayList<>(created.keySet()));
+        assertEquals("Client", created.get("Owner").get(0).getType());
+        assertEquals(1, metrics.getClassesMerged());
+    }
+
+    private static ClassCreator collect(Map<String, List<FieldInfo>> created) {
+        return (classType, fields) -> created.put(classType, new ArrayList<>(fields));
+    }
+}
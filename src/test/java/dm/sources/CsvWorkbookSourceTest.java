@@ -0,0 +1,75 @@
+package dm.sources;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reading cells while the workbook is closed either returns the cell text or fails with
+ * "closed", and never reads a released mapping.
+ */
+public class CsvWorkbookSourceTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void closeWaitsForReaders() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int row = 0; row < 200_000; row++) {
+            text.append("name").append(row).append(",\"quoted \"\"").append(row).append("\"\"\"\n");
+        }
+        Path file = temporaryFolder.getRoot().toPath().resolve("Sheet.csv");
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+
+        for (int attempt = 0; attempt < 5; attempt++) {
+            CsvWorkbookSource workbook = CsvWorkbookSource.open(file.toString());
+            SheetSource sheet = workbook.getSheet("Sheet");
+            CountDownLatch started = new CountDownLatch(4);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<Thread> readers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Thread reader = new Thread(() -> {
+                    try {
+                        for (RowSource row : sheet) {
+                            if (row.getRowNum() == 100) {
+                                started.countDown();
+                            }
+                            for (CellSource cell : row) {
+                                String value = cell.getStringCellValue();
+                                if (!value.startsWith("name") && !value.startsWith("quoted \"")) {
+                                    throw new AssertionError("Unexpected cell text '" + value + "'");
+                                }
+                            }
+                        }
+                    }
+                    catch (IllegalStateException exception) {
+                        if (!exception.getMessage().contains("closed")) {
+                            failure.compareAndSet(null, exception);
+                        }
+                    }
+                    catch (Throwable throwable) {
+                        failure.compareAndSet(null, throwable);
+                    }
+                });
+                reader.start();
+                readers.add(reader);
+            }
+            started.await();
+            workbook.close();
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            assertNull(String.valueOf(failure.get()), failure.get());
+        }
+    }
+}
@@ -0,0 +1,5 @@
+
+public class Address {
+	public String city;
+	public String street;
+}
\ No newline at end of file
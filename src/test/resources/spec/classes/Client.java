@@ -0,0 +1,5 @@
+
+public class Client {
+	public String name;
+	public Document document;
+}
\ No newline at end of file
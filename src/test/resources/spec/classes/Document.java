@@ -0,0 +1,6 @@
+import java.time.LocalDate;
+
+public class Document {
+	public String number;
+	public LocalDate issued;
+}
\ No newline at end of file
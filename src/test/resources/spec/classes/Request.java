@@ -0,0 +1,9 @@
+import java.util.List;
+
+public class Request {
+	public String id;
+	public List<Client> client;
+	public Object address;
+	public boolean flag;
+	public List<Integer> count;
+}
\ No newline at end of file